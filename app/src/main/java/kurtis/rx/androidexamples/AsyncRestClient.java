@@ -0,0 +1,79 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Non-blocking variant of {@link RestClient}.
+ *
+ * Instead of sleeping on the calling thread, every call waits on a timer of the given scheduler
+ * and then emits its result there. No thread is held while a call is "on the network", so any
+ * number of calls can be in flight at once, which is what high-concurrency simulations need.
+ * Unsubscribing before the delay is over cancels the timer.
+ */
+public class AsyncRestClient {
+
+    private final CityIndex mCityIndex;
+    private final List<String> mTvShows;
+    private final SimulatedLatency mTvShowLatency;
+    private final SimulatedLatency mSearchLatency;
+    private final Scheduler mScheduler;
+
+    public AsyncRestClient(
+            CityIndex cityIndex,
+            List<String> tvShows,
+            SimulatedLatency tvShowLatency,
+            SimulatedLatency searchLatency,
+            Scheduler scheduler) {
+        mCityIndex = cityIndex;
+        mTvShows = new ArrayList<>(tvShows);
+        mTvShowLatency = tvShowLatency;
+        mSearchLatency = searchLatency;
+        mScheduler = scheduler;
+    }
+
+    public Observable<List<String>> getFavoriteTvShows() {
+        return afterDelay(mTvShowLatency).map(new Func1<Long, List<String>>() {
+            @Override
+            public List<String> call(Long ignored) {
+                return new ArrayList<>(mTvShows);
+            }
+        });
+    }
+
+    public Observable<List<String>> getFavoriteTvShowsWithException() {
+        return afterDelay(mTvShowLatency).map(new Func1<Long, List<String>>() {
+            @Override
+            public List<String> call(Long ignored) {
+                throw new RuntimeException("Failed to load");
+            }
+        });
+    }
+
+    public Observable<List<String>> searchForCity(final String searchString) {
+        return afterDelay(mSearchLatency).map(new Func1<Long, List<String>>() {
+            @Override
+            public List<String> call(Long ignored) {
+                return mCityIndex.findByPrefix(searchString);
+            }
+        });
+    }
+
+    /**
+     * Every subscription draws its own delay.
+     */
+    private Observable<Long> afterDelay(final SimulatedLatency latency) {
+        return Observable.defer(new Func0<Observable<Long>>() {
+            @Override
+            public Observable<Long> call() {
+                return Observable.timer(latency.nextDelayMillis(), TimeUnit.MILLISECONDS, mScheduler);
+            }
+        });
+    }
+}
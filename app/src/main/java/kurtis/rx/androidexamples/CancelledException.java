@@ -0,0 +1,17 @@
+package kurtis.rx.androidexamples;
+
+/**
+ * The error of a blocking call whose thread was interrupted because nobody wants its result
+ * anymore, e.g. a search superseded by a newer query.
+ *
+ * It says nothing about the backend, so {@link CircuitBreaker} does not count it as a failure,
+ * {@link RetryWithBackoff} does not retry it and {@link CitySearchPipeline} does not report it.
+ */
+public class CancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CancelledException(String message, InterruptedException cause) {
+        super(message, cause);
+    }
+}
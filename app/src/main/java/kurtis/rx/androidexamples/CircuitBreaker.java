@@ -0,0 +1,285 @@
+package kurtis.rx.androidexamples;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+/**
+ * Fails calls to an unhealthy backend right away instead of letting each one wait for its own
+ * failure.
+ *
+ * The breaker starts CLOSED and lets every call through. After {@code failureThreshold} failures
+ * in a row it OPENs: for the next {@code openDuration} every subscription fails immediately with
+ * {@link OpenException}, without subscribing to the call and so without tying up a thread. After
+ * that it is HALF_OPEN: the next call goes through as a probe while the others keep being
+ * rejected; the probe succeeding closes the breaker, failing opens it again.
+ *
+ * A call that is unsubscribed before it terminates counts as neither, and lets another probe
+ * through, and so does one failing with {@link CancelledException}. Calls failing with
+ * {@link OpenException} themselves are not counted either, so nested breakers don't trip each
+ * other.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    public interface Listener {
+        /**
+         * Called on the thread of the call that caused the change, outside the breaker's lock.
+         */
+        void onStateChanged(CircuitBreaker breaker, State from, State to);
+    }
+
+    /**
+     * The error of calls rejected while the breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String name) {
+            super("Circuit " + name + " is open");
+        }
+    }
+
+    private final String mName;
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+    private final Scheduler mClock;
+    private volatile Listener mListener;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenUntil;
+    private boolean mProbeInFlight;
+
+    private long mRejectedCount;
+    private long mOpenedCount;
+    private long mClosedCount;
+    private final LatencyHistogram mFailureLatency = new LatencyHistogram();
+    private final LatencyHistogram mSuccessLatency = new LatencyHistogram();
+
+    /**
+     * @param clock only its {@link Scheduler#now()} is used, to tell when the open period is over
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openDuration, TimeUnit unit, Scheduler clock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        mName = name;
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = unit.toMillis(openDuration);
+        mClock = clock;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Guards every subscription to the observable it is applied to, e.g.
+     * {@code call.compose(breaker.<T>protect())}.
+     */
+    public <T> Observable.Transformer<T, T> protect() {
+        return new Observable.Transformer<T, T>() {
+            @Override
+            public Observable<T> call(final Observable<T> call) {
+                return Observable.defer(new Func0<Observable<T>>() {
+                    @Override
+                    public Observable<T> call() {
+                        Boolean probe = acquire();
+                        if (probe == null) {
+                            return Observable.error(new OpenException(mName));
+                        }
+                        return guard(call, probe);
+                    }
+                });
+            }
+        };
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /**
+     * Calls failed fast while the breaker was open or probing.
+     */
+    public synchronized long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    /**
+     * Number of times the breaker opened, including reopening after a failed probe.
+     */
+    public synchronized long getOpenedCount() {
+        return mOpenedCount;
+    }
+
+    /**
+     * Number of times a successful probe closed the breaker.
+     */
+    public synchronized long getClosedCount() {
+        return mClosedCount;
+    }
+
+    /**
+     * How long the calls that were let through took to fail.
+     */
+    public LatencyHistogram getFailureLatency() {
+        return mFailureLatency;
+    }
+
+    public LatencyHistogram getSuccessLatency() {
+        return mSuccessLatency;
+    }
+
+    /**
+     * Rough time the rejected calls would have spent failing: the rejection count times the mean
+     * latency of the failures that were let through.
+     */
+    public long getEstimatedSavedTime(TimeUnit unit) {
+        return getRejectedCount() * mFailureLatency.getMean(unit);
+    }
+
+    /**
+     * Null to reject the call, otherwise whether it is the half-open probe.
+     */
+    private Boolean acquire() {
+        State from;
+        synchronized (this) {
+            from = mState;
+            if (mState == State.OPEN && mClock.now() >= mOpenUntil) {
+                mState = State.HALF_OPEN;
+            }
+            if (mState == State.CLOSED) {
+                return false;
+            }
+            if (mState == State.OPEN || mProbeInFlight) {
+                mRejectedCount++;
+                return null;
+            }
+            mProbeInFlight = true;
+        }
+        if (from != State.HALF_OPEN) {
+            notifyListener(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    private <T> Observable<T> guard(Observable<T> call, final boolean probe) {
+        final long startNanos = System.nanoTime();
+        // The first terminal event, or unsubscription before one, settles the call.
+        final boolean[] settled = new boolean[1];
+        return call
+                .doOnError(new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable error) {
+                        if (settle(settled)) {
+                            if (error instanceof OpenException || error instanceof CancelledException) {
+                                releaseProbe(probe);
+                            } else {
+                                mFailureLatency.record(System.nanoTime() - startNanos);
+                                onFailure(probe);
+                            }
+                        }
+                    }
+                })
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        if (settle(settled)) {
+                            mSuccessLatency.record(System.nanoTime() - startNanos);
+                            onSuccess(probe);
+                        }
+                    }
+                })
+                .doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        if (settle(settled)) {
+                            releaseProbe(probe);
+                        }
+                    }
+                });
+    }
+
+    private synchronized boolean settle(boolean[] settled) {
+        if (settled[0]) {
+            return false;
+        }
+        settled[0] = true;
+        return true;
+    }
+
+    private void onSuccess(boolean probe) {
+        State from;
+        synchronized (this) {
+            from = mState;
+            mConsecutiveFailures = 0;
+            if (probe) {
+                mProbeInFlight = false;
+            }
+            if (mState != State.HALF_OPEN || !probe) {
+                return;
+            }
+            mState = State.CLOSED;
+            mClosedCount++;
+        }
+        notifyListener(from, State.CLOSED);
+    }
+
+    private void onFailure(boolean probe) {
+        State from;
+        synchronized (this) {
+            from = mState;
+            if (probe) {
+                mProbeInFlight = false;
+            }
+            mConsecutiveFailures++;
+            boolean trips = probe ? mState == State.HALF_OPEN
+                    : mState == State.CLOSED && mConsecutiveFailures >= mFailureThreshold;
+            if (!trips) {
+                return;
+            }
+            mState = State.OPEN;
+            mOpenUntil = mClock.now() + mOpenMillis;
+            mOpenedCount++;
+        }
+        notifyListener(from, State.OPEN);
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (probe) {
+            mProbeInFlight = false;
+        }
+    }
+
+    private void notifyListener(State from, State to) {
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onStateChanged(this, from, to);
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this) {
+            return "CircuitBreaker " + mName + " " + mState
+                    + " opened=" + mOpenedCount
+                    + " closed=" + mClosedCount
+                    + " rejected=" + mRejectedCount
+                    + " saved~" + mRejectedCount * mFailureLatency.getMean(TimeUnit.MILLISECONDS) + "ms"
+                    + " failures[" + mFailureLatency + "]"
+                    + " successes[" + mSuccessLatency + "]";
+        }
+    }
+}
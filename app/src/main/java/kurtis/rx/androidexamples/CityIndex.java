@@ -0,0 +1,22 @@
+package kurtis.rx.androidexamples;
+
+import java.util.List;
+
+/**
+ * Case-insensitive prefix search over a list of city names.
+ */
+public interface CityIndex {
+
+    int size();
+
+    /**
+     * The city at {@code position} in the original list.
+     */
+    String get(int position);
+
+    /**
+     * Returns every city whose lower-cased name starts with the lower-cased prefix, in original
+     * list order, both lower-cased by {@link CityKeys}. An empty prefix matches nothing.
+     */
+    List<String> findByPrefix(String prefix);
+}
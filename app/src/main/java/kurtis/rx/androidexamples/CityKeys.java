@@ -0,0 +1,20 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Locale;
+
+/**
+ * The case-insensitive form of city names and queries that every city search compares.
+ *
+ * Names are lower-cased with {@link Locale#ROOT}, not the default locale. The compiled index
+ * asset is built on another machine than the one searching it. In a Turkish locale, for one, "I"
+ * lower-cases to a dotless i, and the results would depend on which index happened to load.
+ */
+public final class CityKeys {
+
+    private CityKeys() {
+    }
+
+    public static String of(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,111 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Case-insensitive prefix index over a list of city names.
+ *
+ * The lower-cased names are sorted once, so all names starting with a given prefix sit in one
+ * contiguous range that two binary searches can find. Matches are returned in the order of the
+ * original list, which is the same result a linear {@code startsWith} scan would give.
+ */
+public class CityPrefixIndex implements CityIndex {
+
+    private final String[] mCities;
+    private final String[] mSortedKeys;
+    private final int[] mSortedPositions;
+
+    public CityPrefixIndex(String[] cities) {
+        mCities = cities.clone();
+        final String[] keys = new String[mCities.length];
+        Integer[] order = new Integer[mCities.length];
+        for (int i = 0; i < mCities.length; i++) {
+            keys[i] = CityKeys.of(mCities[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return keys[lhs].compareTo(keys[rhs]);
+            }
+        });
+
+        mSortedKeys = new String[mCities.length];
+        mSortedPositions = new int[mCities.length];
+        for (int i = 0; i < order.length; i++) {
+            mSortedKeys[i] = keys[order[i]];
+            mSortedPositions[i] = order[i];
+        }
+    }
+
+    @Override
+    public int size() {
+        return mCities.length;
+    }
+
+    @Override
+    public String get(int position) {
+        return mCities[position];
+    }
+
+    @Override
+    public List<String> findByPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String key = CityKeys.of(prefix);
+        int from = lowerBound(key);
+        int to = upperBound(key, from);
+        int count = to - from;
+        if (count == 0) {
+            return new ArrayList<>();
+        }
+
+        int[] positions = Arrays.copyOfRange(mSortedPositions, from, to);
+        Arrays.sort(positions);
+        List<String> matches = new ArrayList<>(count);
+        for (int position : positions) {
+            matches.add(mCities[position]);
+        }
+        return matches;
+    }
+
+    /**
+     * First index whose key is not less than {@code key}.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = mSortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mSortedKeys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index at or after {@code from} whose key does not start with {@code prefix}. Keys
+     * sharing a prefix are contiguous in sorted order, so this is a binary search as well.
+     */
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = mSortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mSortedKeys[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,184 @@
+package kurtis.rx.androidexamples;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action2;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * The search chain of Example6: debounced queries in, search results out on the result thread.
+ *
+ * In {@link Mode#THREE_HOP} debounce times out on the debounce scheduler (computation unless
+ * given), the search is subscribed on the search scheduler and the results are observed on the
+ * result scheduler, so every query crosses three threads. {@link Mode#SINGLE_HOP} runs the
+ * debounce timer on the search scheduler and searches right where it fires, leaving the hop to
+ * the result thread as the only one. The price is that a running search is no longer interrupted
+ * by a newer query: the search blocks the worker whose debounce timer would release that query,
+ * so the stale result is still emitted and the newer query only follows it. THREE_HOP is
+ * the one that keeps latest-wins cancellation, and the one Example6 uses unless
+ * SEARCH_SINGLE_HOP is set.
+ *
+ * Either way a failed search only drops that query's result, the stream goes on.
+ *
+ * Each query's hop latency is recorded: the dispatch latency from debounce releasing the query
+ * to the search starting, and the delivery latency from the search returning to the result
+ * arriving on the result thread.
+ */
+public class CitySearchPipeline {
+
+    public enum Mode {
+        THREE_HOP,
+        SINGLE_HOP
+    }
+
+    private final Mode mMode;
+    private final Func1<String, List<String>> mSearch;
+    private final Action2<String, Throwable> mOnSearchError;
+    private final long mDebounceMillis;
+    private final Scheduler mDebounceScheduler;
+    private final Scheduler mSearchScheduler;
+    private final Scheduler mResultScheduler;
+
+    private final LatencyHistogram mDispatchLatency = new LatencyHistogram();
+    private final LatencyHistogram mDeliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram mHopLatency = new LatencyHistogram();
+
+    public CitySearchPipeline(Mode mode, Func1<String, List<String>> search, Action2<String, Throwable> onSearchError,
+                              long debounceMillis, Scheduler searchScheduler, Scheduler resultScheduler) {
+        this(mode, search, onSearchError, debounceMillis, Schedulers.computation(), searchScheduler, resultScheduler);
+    }
+
+    /**
+     * @param debounceScheduler runs the debounce timer in {@link Mode#THREE_HOP}; in
+     *                          {@link Mode#SINGLE_HOP} that is the search scheduler
+     */
+    public CitySearchPipeline(Mode mode, Func1<String, List<String>> search, Action2<String, Throwable> onSearchError,
+                              long debounceMillis, Scheduler debounceScheduler, Scheduler searchScheduler,
+                              Scheduler resultScheduler) {
+        mMode = mode;
+        mSearch = search;
+        mOnSearchError = onSearchError;
+        mDebounceMillis = debounceMillis;
+        mDebounceScheduler = mode == Mode.SINGLE_HOP ? searchScheduler : debounceScheduler;
+        mSearchScheduler = searchScheduler;
+        mResultScheduler = resultScheduler;
+    }
+
+    public Observable<List<String>> results(Observable<String> queries) {
+        return searches(queries).map(new Func1<Result, List<String>>() {
+            @Override
+            public List<String> call(Result result) {
+                return result.mCities;
+            }
+        });
+    }
+
+    /**
+     * {@link #results(Observable)} along with the query each result is for.
+     */
+    public Observable<Result> searches(Observable<String> queries) {
+        return queries
+                .debounce(mDebounceMillis, TimeUnit.MILLISECONDS, mDebounceScheduler)
+                .switchMap(new Func1<String, Observable<TimedResult>>() {
+                    @Override
+                    public Observable<TimedResult> call(String query) {
+                        return search(query);
+                    }
+                })
+                .observeOn(mResultScheduler)
+                .map(new Func1<TimedResult, Result>() {
+                    @Override
+                    public Result call(TimedResult result) {
+                        long deliveryNanos = System.nanoTime() - result.mSearchedAtNanos;
+                        mDeliveryLatency.record(deliveryNanos);
+                        mHopLatency.record(result.mDispatchNanos + deliveryNanos);
+                        return new Result(result.mQuery, result.mCities);
+                    }
+                });
+    }
+
+    public Mode getMode() {
+        return mMode;
+    }
+
+    public LatencyHistogram getDispatchLatency() {
+        return mDispatchLatency;
+    }
+
+    public LatencyHistogram getDeliveryLatency() {
+        return mDeliveryLatency;
+    }
+
+    /**
+     * Dispatch plus delivery latency of each query, i.e. the time it spent between threads.
+     */
+    public LatencyHistogram getHopLatency() {
+        return mHopLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "CitySearchPipeline{mode=" + mMode
+                + ", hop=[" + mHopLatency + "]"
+                + ", dispatch=[" + mDispatchLatency + "]"
+                + ", delivery=[" + mDeliveryLatency + "]}";
+    }
+
+    /**
+     * Called on the thread debounce released the query on.
+     */
+    private Observable<TimedResult> search(final String query) {
+        final long releasedAtNanos = System.nanoTime();
+        Observable<TimedResult> search = Observable.fromCallable(new Callable<TimedResult>() {
+            @Override
+            public TimedResult call() {
+                long dispatchNanos = System.nanoTime() - releasedAtNanos;
+                mDispatchLatency.record(dispatchNanos);
+                return new TimedResult(query, mSearch.call(query), dispatchNanos);
+            }
+        });
+        if (mMode == Mode.THREE_HOP) {
+            search = search.subscribeOn(mSearchScheduler);
+        }
+        return search.onErrorResumeNext(new Func1<Throwable, Observable<TimedResult>>() {
+            @Override
+            public Observable<TimedResult> call(Throwable throwable) {
+                // A cancelled search was superseded; there is nothing to report.
+                if (!(throwable instanceof CancelledException)) {
+                    mOnSearchError.call(query, throwable);
+                }
+                return Observable.empty();
+            }
+        });
+    }
+
+    public static final class Result {
+
+        public final String mQuery;
+        public final List<String> mCities;
+
+        Result(String query, List<String> cities) {
+            mQuery = query;
+            mCities = cities;
+        }
+    }
+
+    private static final class TimedResult {
+
+        final String mQuery;
+        final List<String> mCities;
+        final long mDispatchNanos;
+        final long mSearchedAtNanos = System.nanoTime();
+
+        TimedResult(String query, List<String> cities, long dispatchNanos) {
+            mQuery = query;
+            mCities = cities;
+            mDispatchNanos = dispatchNanos;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package kurtis.rx.androidexamples;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.functions.Action0;
+
+/**
+ * Time-to-content tracing, from the tap on an example in the list to the first frame showing
+ * its data.
+ *
+ * A tap starts a trace whose id travels to the example in its Intent; the example stamps the
+ * stages it goes through on that trace. Every stage is stamped at most once per trace, so the
+ * first load, the first results and the first frame after them are what gets recorded. Stamps go
+ * to a fixed-size ring buffer that keeps the latest {@link #CAPACITY} of them and can be exported
+ * as CSV, one row per stamp with the milliseconds since the trace started.
+ *
+ * Stamping is a couple of array writes under a lock, cheap enough to leave on in every build.
+ */
+public final class ContentTrace {
+
+    public static final String EXTRA_TRACE_ID = "kurtis.rx.androidexamples.TRACE_ID";
+    public static final int CAPACITY = 1024;
+
+    public enum Stage {
+        /** The example was tapped in the list. */
+        CLICK,
+        /** The example Activity's onCreate started. */
+        CREATE,
+        /** configureLayout() started and finished, i.e. layout inflation. */
+        LAYOUT_START,
+        LAYOUT_END,
+        /** The example subscribed to its data. */
+        SUBSCRIBE,
+        /** The data arrived upstream: the load completed, or for a search the first results did. */
+        LOADED,
+        /** The views were given the data, e.g. the list adapter applied it. */
+        DISPLAYED,
+        /** The first frame after that has been drawn. */
+        FIRST_FRAME
+    }
+
+    private static final ContentTrace sInstance = new ContentTrace(CAPACITY);
+
+    private final AtomicLong mNextId = new AtomicLong(1);
+
+    private final long[] mIds;
+    private final String[] mExamples;
+    private final Stage[] mStages;
+    private final String[] mThreads;
+    private final long[] mNanos;
+    private int mNext;
+    private int mSize;
+
+    ContentTrace(int capacity) {
+        mIds = new long[capacity];
+        mExamples = new String[capacity];
+        mStages = new Stage[capacity];
+        mThreads = new String[capacity];
+        mNanos = new long[capacity];
+    }
+
+    public static ContentTrace get() {
+        return sInstance;
+    }
+
+    /**
+     * Starts a trace at the tap that is about to launch {@code intent}, and adds its id to it.
+     */
+    public Trace startFromClick(Intent intent) {
+        Trace trace = new Trace(mNextId.getAndIncrement(), exampleName(intent.getComponent().getClassName()));
+        trace.stamp(Stage.CLICK);
+        intent.putExtra(EXTRA_TRACE_ID, trace.mId);
+        return trace;
+    }
+
+    /**
+     * The trace of an example Activity, stamped with {@link Stage#CREATE}: the one started by the
+     * tap that launched it, or a new one when it was launched some other way. An Activity
+     * recreated from saved state gets a trace that records nothing, since it has no tap to
+     * measure from.
+     */
+    public Trace startFromCreate(Activity activity, Bundle savedInstanceState) {
+        if (savedInstanceState != null) {
+            return new Trace(0, null);
+        }
+        long id = activity.getIntent().getLongExtra(EXTRA_TRACE_ID, 0);
+        Trace trace = new Trace(id != 0 ? id : mNextId.getAndIncrement(), exampleName(activity.getClass().getName()));
+        trace.stamp(Stage.CREATE);
+        return trace;
+    }
+
+    /**
+     * All stamps in the buffer, oldest first, as CSV with a header row.
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("trace_id,example,stage,thread,since_start_ms\n");
+        synchronized (this) {
+            int first = (mNext - mSize + mIds.length) % mIds.length;
+            // A trace starts at its earliest stamp still in the buffer.
+            Map<Long, Long> starts = new HashMap<>();
+            for (int i = 0; i < mSize; i++) {
+                int slot = (first + i) % mIds.length;
+                Long start = starts.get(mIds[slot]);
+                if (start == null || mNanos[slot] < start) {
+                    starts.put(mIds[slot], mNanos[slot]);
+                }
+            }
+            for (int i = 0; i < mSize; i++) {
+                int slot = (first + i) % mIds.length;
+                csv.append(mIds[slot]).append(',')
+                        .append(mExamples[slot]).append(',')
+                        .append(mStages[slot]).append(',')
+                        .append(mThreads[slot]).append(',')
+                        .append(String.format(Locale.US, "%.3f", (mNanos[slot] - starts.get(mIds[slot])) / 1e6))
+                        .append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Writes {@link #toCsv()} to {@code file}, replacing it.
+     */
+    public void writeCsv(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(toCsv());
+        } finally {
+            writer.close();
+        }
+    }
+
+    public synchronized void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+
+    private synchronized void record(long id, String example, Stage stage, long nanos) {
+        mIds[mNext] = id;
+        mExamples[mNext] = example;
+        mStages[mNext] = stage;
+        mThreads[mNext] = Thread.currentThread().getName();
+        mNanos[mNext] = nanos;
+        mNext = (mNext + 1) % mIds.length;
+        mSize = Math.min(mSize + 1, mIds.length);
+    }
+
+    /**
+     * "kurtis.rx.androidexamples.Example2Activity" is "Example2".
+     */
+    private static String exampleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        return name.endsWith("Activity") ? name.substring(0, name.length() - "Activity".length()) : name;
+    }
+
+    /**
+     * One trip from a tap to content. Stamps may come from any thread.
+     */
+    public final class Trace {
+
+        private final long mId;
+        private final String mExample;
+        private final AtomicInteger mStamped = new AtomicInteger();
+
+        private Trace(long id, String example) {
+            mId = id;
+            mExample = example;
+        }
+
+        public long getId() {
+            return mId;
+        }
+
+        /**
+         * Records {@code stage} now, unless it has been recorded for this trace before.
+         */
+        public void stamp(Stage stage) {
+            long nanos = System.nanoTime();
+            if (mExample != null && markStamped(stage)) {
+                record(mId, mExample, stage, nanos);
+            }
+        }
+
+        /**
+         * Stamps {@link Stage#DISPLAYED} and, after the next frame, {@link Stage#FIRST_FRAME} when
+         * called, e.g. by SimpleStringAdapter once an update is applied. Call on the main thread.
+         */
+        public Action0 onDisplayed() {
+            return new Action0() {
+                @Override
+                public void call() {
+                    stamp(Stage.DISPLAYED);
+                    stampAfterNextFrame();
+                }
+            };
+        }
+
+        /**
+         * Stamps {@link Stage#FIRST_FRAME} once the next frame has been drawn. Must be called on
+         * the main thread, right after the views were given their data.
+         */
+        public void stampAfterNextFrame() {
+            if (mExample == null || (mStamped.get() & 1 << Stage.FIRST_FRAME.ordinal()) != 0) {
+                return;
+            }
+            final Handler handler = new Handler(Looper.getMainLooper());
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    // Frame callbacks run before the frame's layout and drawing; a message posted
+                    // now runs once they are done.
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            stamp(Stage.FIRST_FRAME);
+                        }
+                    });
+                }
+            });
+        }
+
+        private boolean markStamped(Stage stage) {
+            int bit = 1 << stage.ordinal();
+            int stamped;
+            do {
+                stamped = mStamped.get();
+                if ((stamped & bit) != 0) {
+                    return false;
+                }
+            } while (!mStamped.compareAndSet(stamped, stamped | bit));
+            return true;
+        }
+    }
+}
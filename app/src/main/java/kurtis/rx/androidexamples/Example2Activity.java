@@ -1,5 +1,6 @@
 package kurtis.rx.androidexamples;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
@@ -7,30 +8,36 @@ import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.widget.ProgressBar;
 
+import java.io.File;
 import java.util.List;
-import java.util.concurrent.Callable;
 
 import rx.Observable;
 import rx.Observer;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
+import rx.functions.Action0;
 
 /**
  * https://medium.com/@kurtisnusbaum/rxandroid-basics-part-1-c0d5edcf6850#.to5vs1sbl
  */
 public class Example2Activity extends AppCompatActivity {
 
+    private static final int TV_SHOW_PAGE_SIZE = 4;
+
     private Subscription mTvShowSubscription;
     private RecyclerView mTvShowListView;
     private ProgressBar mProgressBar;
     private SimpleStringAdapter mSimpleStringAdapter;
-    private RestClient mRestClient;
+    private TvShowRepository mTvShowRepository;
+    private Observable<List<String>> mTvShowRequest;
+    private ContentTrace.Trace mTrace;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRestClient = new RestClient(this);
+        mTrace = ContentTrace.get().startFromCreate(this, savedInstanceState);
+        mTvShowRepository = createTvShowRepository(this);
+        mTvShowRequest = getRetainedTvShowRequest();
         configureLayout();
         createObservable();
     }
@@ -43,16 +50,22 @@ public class Example2Activity extends AppCompatActivity {
      * <p/>
      * Observable.fromCallable() allows us to delay the creation of a value to be emitted by an Observable.
      * This is handy when the value you want to emit from your Observable needs to be created off of the UI thread.
+     *
+     * {@link TvShowRepository} wraps mRestClient.getFavoriteTvShows() in Observable.fromCallable() for us,
+     * and lets every screen asking for the list at the same time share one call.
+     *
+     * Here we use its streaming variant: the shows arrive in pages, each one a separate onNext(),
+     * so the first rows show up after the first page instead of after the whole list.
+     *
+     * The list of the last launch is kept in a file, so after the first launch the shows are there
+     * as soon as that file is read and the load only refreshes them in the background.
+     * Every onNext() therefore brings the whole list so far; while the pages of a load arrive
+     * the adapter only appends the new rows, see {@link SimpleStringAdapter#updateStrings(List, Action0)}.
      */
 
     // tức là hàm getFavoriteTvShows() chưa được chạy
     private void createObservable() {
-        Observable<List<String>> tvShowObservable = Observable.fromCallable(new Callable<List<String>>() {
-            @Override
-            public List<String> call() {
-                return mRestClient.getFavoriteTvShows();
-            }
-        });
+        Observable<List<String>> tvShowObservable = mTvShowRequest;
 
         /**
          * // TODO: 7/30/16 2 khi có subcribe mới chạy hàm getFavoriteTvShows() được
@@ -66,6 +79,9 @@ public class Example2Activity extends AppCompatActivity {
          *  But which thread will it run on? In this case we specify that the code is run on the “IO Scheduler” (Schedulers.io()).
          *  For now we can just think of a Scheduler as a separate thread for doing work.
          *
+         *  We actually use {@link NetworkScheduler}: like the IO Scheduler it is meant for blocking calls,
+         *  but it never runs more than a fixed number of them at once.
+         *
          *  Problem: Since our Observable is set to run on the IO Scheduler, this means it’s going to interact with our Observer on the IO Scheduler as well.
          *
          * We can tell RxJava that we want to observe this Observable on the UI thread
@@ -96,12 +112,25 @@ public class Example2Activity extends AppCompatActivity {
          * namely the main UI thread.
          */
         mTvShowSubscription = tvShowObservable
-                .subscribeOn(Schedulers.io())
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        mTrace.stamp(ContentTrace.Stage.LOADED);
+                    }
+                })
+                .subscribeOn(NetworkScheduler.get())
                 .observeOn(AndroidSchedulers.mainThread())
+                .doOnSubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        mTrace.stamp(ContentTrace.Stage.SUBSCRIBE);
+                    }
+                })
                 .subscribe(new Observer<List<String>>() {
                     @Override
                     public void onCompleted() {
-
+                        // Also hides the loader when there were no shows at all.
+                        showTvShowList();
                     }
 
                     @Override
@@ -117,9 +146,45 @@ public class Example2Activity extends AppCompatActivity {
                 });
     }
 
+    /**
+     * On a configuration change the previous instance hands its request over, so the recreated
+     * Activity replays the pending or finished load instead of starting a new one.
+     */
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mTvShowRequest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Observable<List<String>> getRetainedTvShowRequest() {
+        Observable<List<String>> request = (Observable<List<String>>) getLastCustomNonConfigurationInstance();
+        if (request == null) {
+            // Started when the example was tapped, if it has not expired since; it replays by itself.
+            request = PrefetchRegistry.get().claim(Example2Activity.class);
+        }
+        if (request == null) {
+            // cache() keeps the load running after we unsubscribe in onDestroy() and replays it to the next instance.
+            request = mTvShowRepository.streamFavoriteTvShowsCached(TV_SHOW_PAGE_SIZE).cache();
+        }
+        return request;
+    }
+
     /**
      * todo 3 - We should always unsubscribe our Observers in order to prevent nasty things from happening when we’re using Observables to load things asynchronously.
      */
+    /**
+     * The load this screen shows, registered with {@link PrefetchRegistry} so a tap on the example
+     * can start it before the Activity exists.
+     */
+    static Observable<List<String>> loadTvShows(Context context) {
+        return createTvShowRepository(context).streamFavoriteTvShowsCached(TV_SHOW_PAGE_SIZE);
+    }
+
+    private static TvShowRepository createTvShowRepository(Context context) {
+        return new TvShowRepository(new RestClient(context),
+                new StringListFile(new File(context.getCacheDir(), TvShowRepository.FAVORITES_FILE_NAME)));
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -130,17 +195,23 @@ public class Example2Activity extends AppCompatActivity {
     }
 
     private void displayTvShows(List<String> tvShows) {
-        mSimpleStringAdapter.setStrings(tvShows);
+        mSimpleStringAdapter.updateStrings(tvShows, mTrace.onDisplayed());
+        showTvShowList();
+    }
+
+    private void showTvShowList() {
         mProgressBar.setVisibility(View.GONE);
         mTvShowListView.setVisibility(View.VISIBLE);
     }
 
     private void configureLayout() {
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_START);
         setContentView(R.layout.activity_example_2);
         mProgressBar = (ProgressBar) findViewById(R.id.loader);
         mTvShowListView = (RecyclerView) findViewById(R.id.tv_show_list);
         mTvShowListView.setLayoutManager(new LinearLayoutManager(this));
         mSimpleStringAdapter = new SimpleStringAdapter(this);
         mTvShowListView.setAdapter(mSimpleStringAdapter);
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_END);
     }
 }
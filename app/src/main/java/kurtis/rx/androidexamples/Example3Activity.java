@@ -1,41 +1,49 @@
 package kurtis.rx.androidexamples;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import java.io.File;
 import java.util.List;
-import java.util.concurrent.Callable;
 
-import rx.Single;
-import rx.SingleSubscriber;
+import rx.Observable;
+import rx.Observer;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
-import rx.schedulers.Schedulers;
+import rx.functions.Action0;
 
 public class Example3Activity extends AppCompatActivity {
 
+    private static final String TAG = Example3Activity.class.getName();
+
     private Subscription mTvShowSubscription;
     private RecyclerView mTvShowListView;
     private ProgressBar mProgressBar;
     private TextView mErrorMessage;
     private SimpleStringAdapter mSimpleStringAdapter;
-    private RestClient mRestClient;
+    private TvShowRepository mTvShowRepository;
+    private Observable<List<String>> mTvShowRequest;
+    private ContentTrace.Trace mTrace;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        mRestClient = new RestClient(this);
+        mTrace = ContentTrace.get().startFromCreate(this, savedInstanceState);
+        mTvShowRepository = createTvShowRepository(this);
+        mTvShowRequest = getRetainedTvShowRequest();
         configureLayout();
-        createSingle();
+        subscribeToTvShows();
     }
 
     /**
-     * todo 1 Using Singles
+     * todo 1 Singles, and why this example went back to an Observable
      * let’s do it in a simpler fashion.
      *
      * Observables are great, but in many cases they’re kind of overkill.
@@ -45,42 +53,99 @@ public class Example3Activity extends AppCompatActivity {
      * Singles work almost exactly the same as Observables.
      * But instead of there being an onComplete(), onNext(), and onError(), there are only two callbacks: onSuccess() and onError().
      *
-     *
-     *
+     * This example used to load the list as a Single. Now it first shows the list stored by the last
+     * launch and then the fresh one, i.e. up to two values, which a Single cannot emit, so it is
+     * back to an Observable with onNext() and onCompleted().
      */
-    private void createSingle() {
-        Single<List<String>> tvShowSingle = Single.fromCallable(new Callable<List<String>>() {
-            @Override
-            public List<String> call() throws Exception {
-                /**
-                 * Uncomment me (and comment out the line below) to see what happens when an error occurs.
-                 *
-                 * return RestClient.getFavoriteTvShowsWithException();
-                 */
-                return mRestClient.getFavoriteTvShows();
-            }
-        });
+    private void subscribeToTvShows() {
+        /**
+         * The repository hands out an Observable shared with any other screen loading the same list,
+         * toSingle() turns it into a Single since it only ever emits one value.
+         *
+         * Uncomment me (and comment out the subscription below) to see what happens when an error occurs.
+         *
+         * Single<List<String>> tvShowSingle = mTvShowRepository.getFavoriteTvShowsWithException().toSingle();
+         *
+         * Our request does not fit in a Single anymore though: it shows the list stored by the last launch
+         * right away and then the fresh one if it changed in the meantime, which can be two values.
+         * So we subscribe to it as an Observable.
+         */
+        Observable<List<String>> tvShowObservable = mTvShowRequest;
 
 
         /**
          * todo 2 - Single khác với khác biệt với Observable ở chổ nó chỉ có 2 method
+         * (onSuccess() and onError()); the Observer below needs onNext() since the list can come twice.
          */
-        mTvShowSubscription = tvShowSingle
-                .subscribeOn(Schedulers.io())
+        mTvShowSubscription = tvShowObservable
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        mTrace.stamp(ContentTrace.Stage.LOADED);
+                    }
+                })
+                .subscribeOn(NetworkScheduler.get())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new SingleSubscriber<List<String>>() {
+                .doOnSubscribe(new Action0() {
                     @Override
-                    public void onSuccess(List<String> tvShows) {
-                        displayTvShows(tvShows);
+                    public void call() {
+                        mTrace.stamp(ContentTrace.Stage.SUBSCRIBE);
+                    }
+                })
+                .subscribe(new Observer<List<String>>() {
+                    @Override
+                    public void onCompleted() {
+
                     }
 
                     @Override
                     public void onError(Throwable error) {
                         displayErrorMessage();
                     }
+
+                    @Override
+                    public void onNext(List<String> tvShows) {
+                        displayTvShows(tvShows);
+                    }
                 });
     }
 
+    /**
+     * On a configuration change the previous instance hands its request over, so the recreated
+     * Activity replays the pending or finished load instead of starting a new one.
+     */
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mTvShowRequest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Observable<List<String>> getRetainedTvShowRequest() {
+        Observable<List<String>> request = (Observable<List<String>>) getLastCustomNonConfigurationInstance();
+        if (request == null) {
+            // Started when the example was tapped, if it has not expired since; it replays by itself.
+            request = PrefetchRegistry.get().claim(Example3Activity.class);
+        }
+        if (request == null) {
+            // cache() keeps the load running after we unsubscribe in onDestroy() and replays it to the next instance.
+            request = mTvShowRepository.getFavoriteTvShowsCached().cache();
+        }
+        return request;
+    }
+
+    /**
+     * The load this screen shows, registered with {@link PrefetchRegistry} so a tap on the example
+     * can start it before the Activity exists.
+     */
+    static Observable<List<String>> loadTvShows(Context context) {
+        return createTvShowRepository(context).getFavoriteTvShowsCached();
+    }
+
+    private static TvShowRepository createTvShowRepository(Context context) {
+        return new TvShowRepository(new RestClient(context),
+                new StringListFile(new File(context.getCacheDir(), TvShowRepository.FAVORITES_FILE_NAME)));
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -88,10 +153,11 @@ public class Example3Activity extends AppCompatActivity {
         if (mTvShowSubscription != null && !mTvShowSubscription.isUnsubscribed()) {
             mTvShowSubscription.unsubscribe();
         }
+        Log.d(TAG, "onDestroy: " + TvShowRepository.getCircuitBreaker() + ", " + TvShowRepository.getRetry());
     }
 
     private void displayTvShows(List<String> tvShows) {
-        mSimpleStringAdapter.setStrings(tvShows);
+        mSimpleStringAdapter.updateStrings(tvShows, mTrace.onDisplayed());
         mProgressBar.setVisibility(View.GONE);
         mTvShowListView.setVisibility(View.VISIBLE);
     }
@@ -102,6 +168,7 @@ public class Example3Activity extends AppCompatActivity {
     }
 
     private void configureLayout() {
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_START);
         setContentView(R.layout.activity_example_3);
         mErrorMessage = (TextView) findViewById(R.id.error_message);
         mProgressBar = (ProgressBar) findViewById(R.id.loader);
@@ -109,5 +176,6 @@ public class Example3Activity extends AppCompatActivity {
         mTvShowListView.setLayoutManager(new LinearLayoutManager(this));
         mSimpleStringAdapter = new SimpleStringAdapter(this);
         mTvShowListView.setAdapter(mSimpleStringAdapter);
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_END);
     }
 }
@@ -2,18 +2,35 @@ package kurtis.rx.androidexamples;
 
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
 import rx.Observer;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
 
 public class Example4Activity extends AppCompatActivity {
 
+    private static final String TAG = "Example4Activity";
+    private static final int STRESS_VALUE_COUNT = 100000;
+
     private TextView mCounterDisplay;
     private Button mIncrementButton;
-    private PublishSubject<Integer> mCounterEmitter;
+    private Button mStressButton;
+    private SerializedSubject<Integer, Integer> mCounterEmitter;
+    private OperatorCoalesceToFrame<Integer> mFrameCoalescer;
+    private Subscription mStressSubscription;
 
     private int mCounter = 0;
 
@@ -38,9 +55,12 @@ public class Example4Activity extends AppCompatActivity {
      *
      */
     private void createCounterEmitter() {
-        mCounterEmitter = PublishSubject.create();
+        // Serialized, because the stress test pushes values from a background thread.
+        mCounterEmitter = PublishSubject.<Integer>create().toSerialized();
+        // A burst of values shows up as one setText per frame with the latest value.
+        mFrameCoalescer = new OperatorCoalesceToFrame<>();
         // đây là observable lý do là ta oo thể gắn subscribe vào được
-        mCounterEmitter.subscribe(new Observer<Integer>() {
+        mCounterEmitter.lift(mFrameCoalescer).subscribe(new Observer<Integer>() {
             @Override
             public void onCompleted() {
 
@@ -63,6 +83,7 @@ public class Example4Activity extends AppCompatActivity {
         setContentView(R.layout.activity_example_4);
         configureCounterDisplay();
         configureIncrementButton();
+        configureStressButton();
     }
 
     private void configureCounterDisplay() {
@@ -80,6 +101,76 @@ public class Example4Activity extends AppCompatActivity {
         });
     }
 
+    private void configureStressButton() {
+        mStressButton = (Button) findViewById(R.id.stress_button);
+        mStressButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                onStressButtonClick();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        if (mStressSubscription != null && !mStressSubscription.isUnsubscribed()) {
+            mStressSubscription.unsubscribe();
+        }
+    }
+
+    /**
+     * Pushes {@link #STRESS_VALUE_COUNT} values into the emitter as fast as a background thread can
+     * and reports how many of them actually reached the display and how long the main thread spent
+     * showing them.
+     */
+    private void onStressButtonClick() {
+        final int first = mCounter + 1;
+        final long receivedBefore = mFrameCoalescer.getReceivedCount();
+        final long deliveredBefore = mFrameCoalescer.getDeliveredCount();
+        final long deliveryNanosBefore = mFrameCoalescer.getDeliveryNanos();
+
+        mIncrementButton.setEnabled(false);
+        mStressButton.setEnabled(false);
+        mStressSubscription = Observable.range(first, STRESS_VALUE_COUNT)
+                .subscribeOn(Schedulers.computation())
+                .doOnNext(new Action1<Integer>() {
+                    @Override
+                    public void call(Integer value) {
+                        mCounterEmitter.onNext(value);
+                    }
+                })
+                .ignoreElements()
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        mCounter = first + STRESS_VALUE_COUNT - 1;
+                        // Report on the next frame, after the coalescer has shown the last value.
+                        mCounterDisplay.postOnAnimation(new Runnable() {
+                            @Override
+                            public void run() {
+                                reportStressResult(
+                                        mFrameCoalescer.getReceivedCount() - receivedBefore,
+                                        mFrameCoalescer.getDeliveredCount() - deliveredBefore,
+                                        mFrameCoalescer.getDeliveryNanos() - deliveryNanosBefore);
+                            }
+                        });
+                    }
+                })
+                .subscribe();
+    }
+
+    private void reportStressResult(long received, long rendered, long mainThreadNanos) {
+        mIncrementButton.setEnabled(true);
+        mStressButton.setEnabled(true);
+        String result = getString(R.string.stress_result,
+                rendered, received, TimeUnit.NANOSECONDS.toMillis(mainThreadNanos));
+        Log.i(TAG, result + ", " + (received - rendered) + " dropped");
+        Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+    }
+
     /**
      * It calls onNext() on the mCounterEmitter with the new value of mCounter.
 
@@ -12,12 +12,16 @@ import android.widget.EditText;
 import android.widget.TextView;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import rx.Observable;
 import rx.Observer;
 import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
@@ -29,24 +33,75 @@ import rx.subjects.PublishSubject;
 public class Example6Activity extends AppCompatActivity {
 
     private static final String TAG = Example6Activity.class.getName();
+
+    /**
+     * Shared by all instances so that results survive leaving and reopening the example.
+     */
+    private static final SearchResultCache sSearchCache =
+            new SearchResultCache(100, 256 * 1024, 5, TimeUnit.MINUTES);
+
+    /**
+     * Fuzzy matching gets at most this much of a keystroke's time and returns this many cities.
+     */
+    private static final long FUZZY_SEARCH_BUDGET_MILLIS = 30;
+    private static final int FUZZY_SEARCH_MAX_RESULTS = 20;
+
+    /**
+     * With SEARCH_HEDGING, the calls of a search and the timer of its duplicate run here, apart
+     * from the NetworkScheduler thread that waits for them. Sharing that pool, four waiting
+     * searches would hold every thread their own calls need. Two threads per waiting search keep
+     * a duplicate from queueing behind the calls it is meant to overtake.
+     */
+    private static final NetworkScheduler sHedgedCallScheduler =
+            new NetworkScheduler(2 * NetworkScheduler.get().getMaxConcurrency(), 64);
+
+    /**
+     * With SEARCH_HEDGING, a search slower than 95% of the last 100 gets a duplicate.
+     */
+    private static final HedgedRequest sSearchHedge = new HedgedRequest(95, 100, 20, sHedgedCallScheduler);
+
     private RestClient mRestClient;
+    private RefiningCitySearch mCitySearch;
     private EditText mSearchInput;
     private TextView mNoResultsIndicator;
     private RecyclerView mSearchResults;
     private SimpleStringAdapter mSearchResultsAdapter;
 
+    private CitySearchPipeline mSearchPipeline;
     private PublishSubject<String> mSearchResultsSubject;
     private Subscription mTextWatchSubscription;
+    private Subscription mWarmUpSubscription;
+    private ContentTrace.Trace mTrace;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mTrace = ContentTrace.get().startFromCreate(this, savedInstanceState);
         mRestClient = new RestClient(this);
+        mCitySearch = new RefiningCitySearch(new Func1<String, List<String>>() {
+            @Override
+            public List<String> call(String s) {
+                return BuildConfig.SEARCH_HEDGING ? searchForCityHedged(s) : mRestClient.searchForCity(s);
+            }
+        });
         configureLayout();
+        warmUpSearchResults();
         createObservables();
         listenToSearchInput();
     }
 
+    /**
+     * The rows of the first results are inflated while the user is still typing, so the frame
+     * showing them only binds. Compare DISPLAYED to FIRST_FRAME in the {@link ContentTrace} with
+     * SEARCH_RESULT_WARM_UP_ROWS at 0 and above to see the difference.
+     */
+    private void warmUpSearchResults() {
+        if (BuildConfig.SEARCH_RESULT_WARM_UP_ROWS > 0) {
+            mWarmUpSubscription = ViewHolderWarmUp.warmUp(mSearchResults, mSearchResultsAdapter, 0,
+                    BuildConfig.SEARCH_RESULT_WARM_UP_ROWS, Schedulers.computation());
+        }
+    }
+
     /**
      * todo 1 - nhớ method debounce() là method mới ở đây
      */
@@ -79,7 +134,7 @@ public class Example6Activity extends AppCompatActivity {
          |||
          |||
          V
-         map
+         switchMap
          |
          |
          V
@@ -93,29 +148,40 @@ public class Example6Activity extends AppCompatActivity {
          * todo 6 - cái onNext là nó phải đi wa 1 bộ lọc nó mới tới onNext
          */
         mSearchResultsSubject = PublishSubject.create();
-        mTextWatchSubscription = mSearchResultsSubject
-                .debounce(400, TimeUnit.MILLISECONDS)
-                .observeOn(Schedulers.io())
-                /**
-                 * Because map can run any arbitrary function, we’ll use our RestClient to transform our search query into the list of actual results we want to display.
-                 *
-                 */
-                .map(new Func1<String, List<String>>() {
+        /**
+         * The debounce, the search and the hop back to the UI thread live in {@link CitySearchPipeline}.
+         *
+         * Because map can run any arbitrary function, we’ll use our RestClient to transform our search query into the list of actual results we want to display.
+         *
+         * mCitySearch only goes to the RestClient when the query is not an extension of the previous one,
+         * otherwise it narrows down the previous results locally.
+         * The searches run on the bounded {@link NetworkScheduler} rather than on Schedulers.io().
+         */
+        mSearchPipeline = new CitySearchPipeline(
+                BuildConfig.SEARCH_SINGLE_HOP ? CitySearchPipeline.Mode.SINGLE_HOP : CitySearchPipeline.Mode.THREE_HOP,
+                new Func1<String, List<String>>() {
                     @Override
                     public List<String> call(String s) {
-                        return mRestClient.searchForCity(s);
+                        return searchForCity(s);
                     }
-                })
+                },
+                new Action2<String, Throwable>() {
+                    @Override
+                    public void call(String s, Throwable throwable) {
+                        // A failed query, e.g. rejected by a saturated NetworkScheduler,
+                        // must not end the whole search stream.
+                        Log.w(TAG, "Search for \"" + s + "\" failed", throwable);
+                    }
+                },
+                400, NetworkScheduler.get(), AndroidSchedulers.mainThread());
+        mTrace.stamp(ContentTrace.Stage.SUBSCRIBE);
+        mTextWatchSubscription = mSearchPipeline.results(mSearchResultsSubject)
                 .doOnNext(new Action1<List<String>>() {
                     @Override
                     public void call(List<String> strings) {
                         Log.e(TAG, "call: phải xứ lỷ mới chuối string trước khi ta handle nó ");
                     }
                 })
-                /**
-                 * Since our map was run on the IO Scheduler, and we want to use the results it emits to populate our views, we then need to switch back to the UI thread. So we add an observeOn(AndroidSchedulers.mainThread()).
-                 */
-                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<List<String>>() {
                     @Override
                     public void onCompleted() {
@@ -138,9 +204,55 @@ public class Example6Activity extends AppCompatActivity {
                 });
     }
 
+    /**
+     * When nothing starts with the query it probably has a typo, so the cities closest to it are
+     * shown instead of "no results".
+     *
+     * Fuzzy matches are only cached when the search was done within its budget and found
+     * something: a truncated list depends on how much time one keystroke got, and caching "no
+     * prefix matches" would skip the fuzzy search next time.
+     */
+    private List<String> searchForCity(String query) {
+        List<String> cities = sSearchCache.get(query);
+        if (cities == null) {
+            cities = mCitySearch.call(query);
+            if (cities.isEmpty() && !query.isEmpty()) {
+                FuzzyCityIndex.Matches matches = mRestClient.searchForCityFuzzy(query, FUZZY_SEARCH_MAX_RESULTS,
+                        FUZZY_SEARCH_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+                cities = matches.mCities;
+                if (!matches.mTruncated && !cities.isEmpty()) {
+                    sSearchCache.put(query, cities);
+                }
+            } else {
+                sSearchCache.put(query, cities);
+            }
+        }
+        mTrace.stamp(ContentTrace.Stage.LOADED);
+        return cities;
+    }
+
+    /**
+     * The calls run on {@link #sHedgedCallScheduler} while this thread waits; interrupting it
+     * cancels both.
+     */
+    private List<String> searchForCityHedged(final String query) {
+        return sSearchHedge.executeBlocking(new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return Observable.fromCallable(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return mRestClient.searchForCity(query);
+                    }
+                }).subscribeOn(sHedgedCallScheduler);
+            }
+        });
+    }
+
     private void handleSearchResults(List<String> cities) {
         if (cities.isEmpty()) {
             showNoSearchResults();
+            mTrace.onDisplayed().call();
         } else {
             showSearchResults(cities);
         }
@@ -154,7 +266,7 @@ public class Example6Activity extends AppCompatActivity {
     private void showSearchResults(List<String> cities) {
         mNoResultsIndicator.setVisibility(View.GONE);
         mSearchResults.setVisibility(View.VISIBLE);
-        mSearchResultsAdapter.setStrings(cities);
+        mSearchResultsAdapter.updateStrings(cities, mTrace.onDisplayed());
     }
 
     private void listenToSearchInput() {
@@ -184,6 +296,7 @@ public class Example6Activity extends AppCompatActivity {
     }
 
     private void configureLayout() {
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_START);
         setContentView(R.layout.activity_example_6);
         mSearchInput = (EditText) findViewById(R.id.search_input);
         mNoResultsIndicator = (TextView) findViewById(R.id.no_results_indicator);
@@ -191,6 +304,7 @@ public class Example6Activity extends AppCompatActivity {
         mSearchResults.setLayoutManager(new LinearLayoutManager(this));
         mSearchResultsAdapter = new SimpleStringAdapter(this);
         mSearchResults.setAdapter(mSearchResultsAdapter);
+        mTrace.stamp(ContentTrace.Stage.LAYOUT_END);
     }
 
     /**
@@ -199,8 +313,22 @@ public class Example6Activity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Log.d(TAG, "onDestroy: " + sSearchCache + ", rows bound: " + mSearchResultsAdapter.getBindCount()
+                + ", " + NetworkScheduler.get());
+        Log.d(TAG, "onDestroy: " + mSearchPipeline);
+        Log.d(TAG, "onDestroy: rows inflated on the main thread: " + mSearchResultsAdapter.getMainThreadCreateCount()
+                + " in " + TimeUnit.NANOSECONDS.toMillis(mSearchResultsAdapter.getMainThreadCreateNanos()) + " ms");
+        if (BuildConfig.SEARCH_HEDGING) {
+            Log.d(TAG, "onDestroy: " + sSearchHedge);
+        }
+        if (SchedulerMetrics.isInstalled()) {
+            Log.d(TAG, SchedulerMetrics.dump());
+        }
         if (mTextWatchSubscription != null && !mTextWatchSubscription.isUnsubscribed()) {
             mTextWatchSubscription.unsubscribe();
         }
+        if (mWarmUpSubscription != null && !mWarmUpSubscription.isUnsubscribed()) {
+            mWarmUpSubscription.unsubscribe();
+        }
     }
 }
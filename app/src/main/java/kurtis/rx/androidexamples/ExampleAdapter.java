@@ -21,6 +21,7 @@ public class ExampleAdapter extends RecyclerView.Adapter<ExampleAdapter.ViewHold
     public ExampleAdapter(Context context, List<ExampleActivityAndName> examples) {
         mContext = context;
         mExamples = examples;
+        setHasStableIds(true);
     }
 
     @Override
@@ -28,19 +29,34 @@ public class ExampleAdapter extends RecyclerView.Adapter<ExampleAdapter.ViewHold
         View v = LayoutInflater
                 .from(mContext)
                 .inflate(R.layout.example_list_item, parent, false);
-        return new ViewHolder(v);
-    }
-
-    @Override
-    public void onBindViewHolder(final ViewHolder holder, final int position) {
-        holder.mNameDisplay.setText(mExamples.get(position).mExampleName);
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
+        final ViewHolder holder = new ViewHolder(v);
+        v.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                Intent exampleIntent = new Intent(mContext, mExamples.get(position).mExampleActivityClass);
-                mContext.startActivity(exampleIntent);
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    Intent exampleIntent = new Intent(mContext, mExamples.get(position).mExampleActivityClass);
+                    ContentTrace.get().startFromClick(exampleIntent);
+                    // Its data starts loading while the Activity is still being created.
+                    PrefetchRegistry.get().prefetch(mExamples.get(position).mExampleActivityClass);
+                    mContext.startActivity(exampleIntent);
+                }
             }
         });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        holder.mNameDisplay.setText(mExamples.get(position).mExampleName);
+    }
+
+    /**
+     * The list of examples never changes, so a position identifies its example for good.
+     */
+    @Override
+    public long getItemId(int position) {
+        return position;
     }
 
     @Override
@@ -5,12 +5,27 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
 
 public class ExampleListActivity extends AppCompatActivity {
 
+    private static final String TAG = ExampleListActivity.class.getName();
+
+    /**
+     * Where the {@link ContentTrace} stamps are exported each time the list comes back, e.g. for
+     * {@code adb pull}.
+     */
+    private static final String CONTENT_TRACE_FILE_NAME = "content_trace.csv";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -19,6 +34,37 @@ public class ExampleListActivity extends AppCompatActivity {
         setupExampleList();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        exportContentTrace();
+        Log.d(TAG, "onResume: " + PrefetchRegistry.get());
+    }
+
+    private void exportContentTrace() {
+        final File file = new File(getCacheDir(), CONTENT_TRACE_FILE_NAME);
+        Observable
+                .fromCallable(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        ContentTrace.get().writeCsv(file);
+                        return file;
+                    }
+                })
+                .subscribeOn(Schedulers.io())
+                .subscribe(new Action1<File>() {
+                    @Override
+                    public void call(File file) {
+                        Log.d(TAG, "Content trace written to " + file);
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        Log.w(TAG, "Could not write the content trace", throwable);
+                    }
+                });
+    }
+
     private void setupActionBar() {
         ActionBar actionBar = getSupportActionBar();
         if (actionBar != null) {
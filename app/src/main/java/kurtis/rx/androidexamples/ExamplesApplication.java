@@ -0,0 +1,46 @@
+package kurtis.rx.androidexamples;
+
+import android.app.Application;
+import android.util.Log;
+
+import java.util.List;
+
+import rx.Observable;
+import rx.functions.Func0;
+
+public class ExamplesApplication extends Application {
+
+    private static final String TAG = ExamplesApplication.class.getName();
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Has to happen before any Rx scheduler is used, see SchedulerMetrics.
+        if (BuildConfig.RX_METRICS_SAMPLE_EVERY > 0) {
+            SchedulerMetrics.install(BuildConfig.RX_METRICS_SAMPLE_EVERY);
+        }
+        registerPrefetches();
+        TvShowRepository.getCircuitBreaker().setListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChanged(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+                Log.i(TAG, "Circuit " + breaker.getName() + ": " + from + " -> " + to + ", " + breaker);
+            }
+        });
+    }
+
+    private void registerPrefetches() {
+        PrefetchRegistry registry = PrefetchRegistry.get();
+        registry.register(Example2Activity.class, new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return Example2Activity.loadTvShows(ExamplesApplication.this);
+            }
+        });
+        registry.register(Example3Activity.class, new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return Example3Activity.loadTvShows(ExamplesApplication.this);
+            }
+        });
+    }
+}
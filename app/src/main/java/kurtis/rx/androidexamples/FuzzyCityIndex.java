@@ -0,0 +1,362 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typo-tolerant search over a {@link CityIndex}: finds the cities that start with something within
+ * a small edit distance of the query, so "Sna Fr" still finds "San Francisco".
+ *
+ * An inverted index from every trigram of every lower-cased name (padded at the start, so the
+ * first letters count as well) to the cities and positions it occurs at is built once. A city can
+ * only start with something within d edits of the query if it shares enough of the query's
+ * trigrams at about the same positions, since every edit destroys at most four of them and shifts
+ * the rest by at most one. The candidates that do are checked, most shared trigrams first, with
+ * a prefix edit distance in which swapping two letters counts as one edit, and the closest ones
+ * are returned.
+ *
+ * The allowed distance grows with the query: none up to 3 characters, one up to 6, two beyond.
+ * Candidates need at least one trigram in common, so a query of 4, 7 or 8 characters whose edits
+ * break every one of its trigrams, e.g. "sita" for "Istanbul", is not found. A search stops
+ * collecting and checking candidates once its time budget is used up and returns the best it has
+ * found so far.
+ */
+public class FuzzyCityIndex {
+
+    private static final char PADDING = '\u0001';
+    /**
+     * A swap of two letters touches four trigrams, any other edit at most three.
+     */
+    private static final int TRIGRAMS_PER_EDIT = 4;
+    /**
+     * Postings are city << POSITION_BITS | position. Trigrams further into a name than a query
+     * can reach are not indexed.
+     */
+    private static final int POSITION_BITS = 6;
+    private static final int MAX_POSITION = (1 << POSITION_BITS) - 1;
+
+    private final CityIndex mCities;
+    private final TrigramIds mTrigramIds = new TrigramIds();
+    private final int[] mPostingStarts;
+    private final int[] mPostings;
+
+    private final ThreadLocal<int[]> mCounts = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[mCities.size()];
+        }
+    };
+
+    public FuzzyCityIndex(CityIndex cities) {
+        if (cities.size() > Integer.MAX_VALUE >>> POSITION_BITS) {
+            throw new IllegalArgumentException("Too many cities: " + cities.size());
+        }
+        mCities = cities;
+        int size = cities.size();
+
+        // Two passes over the names: count the postings per trigram, then fill them in. Postings
+        // come out sorted by city and position since both are visited in order.
+        int[] counts = new int[64];
+        for (int city = 0; city < size; city++) {
+            String key = keyOf(cities.get(city));
+            for (int i = 0; i < trigramsIn(key); i++) {
+                int trigram = mTrigramIds.getOrAdd(pack(key, i));
+                if (trigram >= counts.length) {
+                    counts = Arrays.copyOf(counts, 2 * counts.length);
+                }
+                counts[trigram]++;
+            }
+        }
+
+        int trigramCount = mTrigramIds.size();
+        mPostingStarts = new int[trigramCount + 1];
+        for (int trigram = 0; trigram < trigramCount; trigram++) {
+            mPostingStarts[trigram + 1] = mPostingStarts[trigram] + counts[trigram];
+        }
+        mPostings = new int[mPostingStarts[trigramCount]];
+        int[] next = Arrays.copyOf(mPostingStarts, trigramCount);
+        for (int city = 0; city < size; city++) {
+            String key = keyOf(cities.get(city));
+            for (int i = 0; i < trigramsIn(key); i++) {
+                int trigram = mTrigramIds.get(pack(key, i));
+                mPostings[next[trigram]++] = city << POSITION_BITS | i;
+            }
+        }
+    }
+
+    /**
+     * Returns at most {@code maxResults} cities closest to the query, closest first and in list
+     * order among equally close ones, spending about {@code budget} on the search. When more
+     * cities are equally close than fit, those sharing the most trigrams with the query are
+     * taken, not necessarily the first ones in the list.
+     */
+    public List<String> findSimilar(String query, int maxResults, long budget, TimeUnit unit) {
+        return search(query, maxResults, budget, unit).mCities;
+    }
+
+    /**
+     * {@link #findSimilar(String, int, long, TimeUnit)}, telling as well whether the budget ran
+     * out before the search was done, in which case closer cities may have been missed.
+     */
+    public Matches search(String query, int maxResults, long budget, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(budget);
+        String queryKey = CityKeys.of(query);
+        if (queryKey.isEmpty() || maxResults <= 0) {
+            return new Matches(new ArrayList<String>(), false);
+        }
+        int maxDistance = queryKey.length() <= 3 ? 0 : queryKey.length() <= 6 ? 1 : 2;
+        String paddedQuery = keyOf(queryKey);
+
+        // The query's trigrams by how often they occur, rarest first, with their position.
+        int trigramCount = trigramsIn(paddedQuery);
+        int[] trigrams = new int[trigramCount];
+        long[] bySize = new long[trigramCount];
+        for (int i = 0; i < trigramCount; i++) {
+            trigrams[i] = mTrigramIds.get(pack(paddedQuery, i));
+            int postings = trigrams[i] < 0 ? 0 : mPostingStarts[trigrams[i] + 1] - mPostingStarts[trigrams[i]];
+            bySize[i] = (long) postings << 32 | i;
+        }
+        Arrays.sort(bySize);
+        int minShared = Math.max(1, trigramCount - TRIGRAMS_PER_EDIT * maxDistance);
+
+        // Counting every list is cheaper than scanning only the rarest ones and looking the
+        // others up per city found, since with typos the rare lists are not that rare.
+        int[] counts = mCounts.get();
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        boolean truncated = false;
+        for (int s = 0; s < trigramCount; s++) {
+            if (System.nanoTime() > deadline) {
+                truncated = true;
+                break;
+            }
+            int position = (int) bySize[s];
+            int trigram = trigrams[position];
+            if (trigram < 0) {
+                continue;
+            }
+            int lastCity = -1;
+            for (int p = mPostingStarts[trigram]; p < mPostingStarts[trigram + 1]; p++) {
+                int city = mPostings[p] >>> POSITION_BITS;
+                if (city != lastCity && isNear(mPostings[p] & MAX_POSITION, position, maxDistance)) {
+                    lastCity = city;
+                    if (counts[city]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, 2 * touched.length);
+                        }
+                        touched[touchedCount++] = city;
+                    }
+                }
+            }
+        }
+
+        // Bucket the candidates by shared trigrams, most first.
+        int[] bucketSizes = new int[trigramCount + 1];
+        for (int i = 0; i < touchedCount; i++) {
+            bucketSizes[counts[touched[i]]]++;
+        }
+        int[] bucketStarts = new int[trigramCount + 1];
+        for (int shared = trigramCount; shared >= minShared; shared--) {
+            bucketStarts[shared - 1] = bucketStarts[shared] + bucketSizes[shared];
+        }
+        int[] candidates = new int[bucketStarts[minShared - 1]];
+        for (int i = 0; i < touchedCount; i++) {
+            int city = touched[i];
+            int shared = counts[city];
+            counts[city] = 0;
+            if (shared >= minShared) {
+                candidates[bucketStarts[shared]++] = city;
+            }
+        }
+
+        // Verify, most promising first; results are kept as distance * size + city to sort them.
+        // A city sharing s trigrams is at least (trigramCount - s) / 4 edits away, so once enough
+        // results are at most that far, no later bucket can improve on them.
+        long[] results = new long[Math.min(candidates.length, 64)];
+        int resultCount = 0;
+        int[] resultsWithin = new int[maxDistance + 1];
+        int next = 0;
+        verify:
+        for (int shared = trigramCount; shared >= minShared; shared--) {
+            if (resultsWithin[(trigramCount - shared + TRIGRAMS_PER_EDIT - 1) / TRIGRAMS_PER_EDIT] >= maxResults) {
+                break;
+            }
+            for (int end = next + bucketSizes[shared]; next < end; next++) {
+                if ((next & 63) == 63 && System.nanoTime() > deadline) {
+                    truncated = true;
+                    break verify;
+                }
+                int city = candidates[next];
+                int distance = prefixDistance(queryKey, CityKeys.of(mCities.get(city)), maxDistance);
+                if (distance <= maxDistance) {
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, 2 * results.length);
+                    }
+                    results[resultCount++] = (long) distance * mCities.size() + city;
+                    for (int within = distance; within <= maxDistance; within++) {
+                        resultsWithin[within]++;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(results, 0, resultCount);
+        List<String> matches = new ArrayList<>(Math.min(resultCount, maxResults));
+        for (int i = 0; i < resultCount && matches.size() < maxResults; i++) {
+            matches.add(mCities.get((int) (results[i] % mCities.size())));
+        }
+        return new Matches(matches, truncated);
+    }
+
+    private static boolean isNear(int indexedPosition, int queryPosition, int maxDistance) {
+        return Math.abs(indexedPosition - queryPosition) <= maxDistance;
+    }
+
+    /**
+     * Smallest edit distance between {@code query} and any prefix of {@code name}, counting a
+     * swap of two neighbouring letters as one edit, or {@code maxDistance + 1} once it is certain
+     * to be larger than {@code maxDistance}.
+     */
+    static int prefixDistance(String query, String name, int maxDistance) {
+        int columns = name.length() + 1;
+        int[] beforePrevious = new int[columns];
+        int[] previous = new int[columns];
+        int[] current = new int[columns];
+        // Row 0: the first letters of the name can only be skipped by deleting them, so the match
+        // starts at the beginning of the name. Taking the smallest value of the last row lets it
+        // end anywhere.
+        for (int column = 0; column < columns; column++) {
+            previous[column] = column;
+        }
+        for (int row = 1; row <= query.length(); row++) {
+            char q = query.charAt(row - 1);
+            current[0] = row;
+            int rowMin = row;
+            for (int column = 1; column < columns; column++) {
+                char n = name.charAt(column - 1);
+                int distance = Math.min(previous[column - 1] + (q == n ? 0 : 1),
+                        Math.min(previous[column], current[column - 1]) + 1);
+                if (row > 1 && column > 1 && q == name.charAt(column - 2) && query.charAt(row - 2) == n) {
+                    distance = Math.min(distance, beforePrevious[column - 2] + 1);
+                }
+                current[column] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        int distance = previous[0];
+        for (int column = 1; column < columns; column++) {
+            distance = Math.min(distance, previous[column]);
+        }
+        return distance;
+    }
+
+    private static String keyOf(String name) {
+        return "" + PADDING + PADDING + CityKeys.of(name);
+    }
+
+    /**
+     * Trigrams at positions 0 to MAX_POSITION only; queries long enough to need more still
+     * share those.
+     */
+    private static int trigramsIn(String key) {
+        return Math.min(key.length() - 2, MAX_POSITION + 1);
+    }
+
+    private static long pack(String key, int i) {
+        return ((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2);
+    }
+
+    public static final class Matches {
+
+        public final List<String> mCities;
+        /**
+         * Whether the search stopped at its budget rather than because it was done.
+         */
+        public final boolean mTruncated;
+
+        Matches(List<String> cities, boolean truncated) {
+            mCities = cities;
+            mTruncated = truncated;
+        }
+    }
+
+    /**
+     * Open-addressing map from packed trigrams to dense ids, to stay clear of boxing while
+     * indexing millions of names.
+     */
+    private static final class TrigramIds {
+
+        private long[] mKeys = new long[1024];
+        private int[] mIds = new int[1024];
+        private int mSize;
+
+        TrigramIds() {
+            Arrays.fill(mKeys, -1);
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        int get(long key) {
+            int mask = mKeys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (mKeys[slot] == key) {
+                    return mIds[slot];
+                }
+                if (mKeys[slot] == -1) {
+                    return -1;
+                }
+            }
+        }
+
+        int getOrAdd(long key) {
+            int id = get(key);
+            if (id >= 0) {
+                return id;
+            }
+            if (2 * (mSize + 1) > mKeys.length) {
+                grow();
+            }
+            insert(key, mSize);
+            return mSize++;
+        }
+
+        private void insert(long key, int id) {
+            int mask = mKeys.length - 1;
+            int slot = hash(key) & mask;
+            while (mKeys[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            mKeys[slot] = key;
+            mIds[slot] = id;
+        }
+
+        private void grow() {
+            long[] keys = mKeys;
+            int[] ids = mIds;
+            mKeys = new long[2 * keys.length];
+            mIds = new int[2 * ids.length];
+            Arrays.fill(mKeys, -1);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != -1) {
+                    insert(keys[slot], ids[slot]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Cuts the latency tail of a call by hedging it: when the call has not answered within a
+ * percentile of its recently observed latency, one duplicate is started and whichever answers
+ * first wins; the other is unsubscribed.
+ *
+ * With the 95th percentile, about one call in twenty gets a duplicate, which is the extra load
+ * that buys a p99 close to the p95. Until {@code minSamples} latencies have been observed no call
+ * is hedged.
+ *
+ * The calls have to be asynchronous, e.g. subscribed on a scheduler, or the duplicate is only
+ * started once the first one has finished. Only the latency of the call that answers is
+ * observed, so the percentile is that of answered calls; the hedge rate tells how often it was
+ * exceeded.
+ */
+public class HedgedRequest {
+
+    private final double mPercentile;
+    private final int mMinSamples;
+    private final Scheduler mTimerScheduler;
+
+    private final long[] mRecentNanos;
+    private int mRecentCount;
+    private int mNextRecent;
+
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mHedgeCount = new AtomicLong();
+    private final AtomicLong mHedgeWinCount = new AtomicLong();
+    private final LatencyHistogram mLatency = new LatencyHistogram();
+
+    /**
+     * @param percentile     of recent latencies after which a call is hedged, e.g. 95
+     * @param windowSize     how many recent latencies the percentile is taken over
+     * @param minSamples     latencies needed before calls are hedged at all
+     * @param timerScheduler runs the timer that starts the duplicate
+     */
+    public HedgedRequest(double percentile, int windowSize, int minSamples, Scheduler timerScheduler) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]");
+        }
+        if (windowSize < 1 || minSamples < 1 || minSamples > windowSize) {
+            throw new IllegalArgumentException("Expected 1 <= minSamples <= windowSize");
+        }
+        mPercentile = percentile;
+        mMinSamples = minSamples;
+        mTimerScheduler = timerScheduler;
+        mRecentNanos = new long[windowSize];
+    }
+
+    /**
+     * Each subscription calls {@code call} once, and once more if it is hedged.
+     */
+    public <T> Observable<T> execute(final Func0<Observable<T>> call) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                mRequestCount.incrementAndGet();
+                final long startNanos = System.nanoTime();
+                long hedgeDelayNanos = getHedgeDelay(TimeUnit.NANOSECONDS);
+                Observable<T> first = observe(call.call(), startNanos, false);
+                if (hedgeDelayNanos < 0) {
+                    return first;
+                }
+                Observable<T> hedge = Observable.timer(hedgeDelayNanos, TimeUnit.NANOSECONDS, mTimerScheduler)
+                        .flatMap(new Func1<Long, Observable<T>>() {
+                            @Override
+                            public Observable<T> call(Long ignored) {
+                                mHedgeCount.incrementAndGet();
+                                return observe(call.call(), startNanos, true);
+                            }
+                        });
+                // amb unsubscribes the other one as soon as either emits anything.
+                return Observable.amb(first, hedge);
+            }
+        });
+    }
+
+    /**
+     * Blocking version of {@link #execute(Func0)} for a call that emits exactly one value.
+     * Interrupting the waiting thread unsubscribes both calls and fails with a
+     * {@link CancelledException}.
+     */
+    public <T> T executeBlocking(Func0<Observable<T>> call) {
+        final AtomicReference<T> value = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Subscription subscription = execute(call).single().subscribe(new Subscriber<T>() {
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                error.set(e);
+                done.countDown();
+            }
+
+            @Override
+            public void onNext(T t) {
+                value.set(t);
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            subscription.unsubscribe();
+            Thread.currentThread().interrupt();
+            throw new CancelledException("Hedged request cancelled", e);
+        }
+        Throwable failure = error.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+        return value.get();
+    }
+
+    /**
+     * How long a call is currently given before it is hedged, or -1 while there are too few
+     * samples to tell.
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        long[] recent;
+        synchronized (mRecentNanos) {
+            if (mRecentCount < mMinSamples) {
+                return -1;
+            }
+            recent = Arrays.copyOf(mRecentNanos, mRecentCount);
+        }
+        Arrays.sort(recent);
+        int rank = (int) Math.ceil(recent.length * mPercentile / 100) - 1;
+        return unit.convert(recent[Math.max(0, rank)], TimeUnit.NANOSECONDS);
+    }
+
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public long getHedgeCount() {
+        return mHedgeCount.get();
+    }
+
+    /**
+     * Hedges that answered before the call they duplicated.
+     */
+    public long getHedgeWinCount() {
+        return mHedgeWinCount.get();
+    }
+
+    /**
+     * Fraction of requests that were hedged, between 0 and 1.
+     */
+    public double getHedgeRate() {
+        long requests = mRequestCount.get();
+        return requests == 0 ? 0 : (double) mHedgeCount.get() / requests;
+    }
+
+    /**
+     * Time from subscription to the first answer of either call, for every request that got one.
+     */
+    public LatencyHistogram getLatency() {
+        return mLatency;
+    }
+
+    private <T> Observable<T> observe(Observable<T> call, final long requestStartNanos, final boolean isHedge) {
+        final long[] attemptStartNanos = new long[1];
+        final boolean[] answered = new boolean[1];
+        return call
+                .doOnSubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        attemptStartNanos[0] = System.nanoTime();
+                    }
+                })
+                .doOnEach(new Action1<Notification<? super T>>() {
+                    @Override
+                    public void call(Notification<? super T> notification) {
+                        if (answered[0] || !notification.isOnNext()) {
+                            return;
+                        }
+                        answered[0] = true;
+                        long now = System.nanoTime();
+                        record(now - attemptStartNanos[0]);
+                        mLatency.record(now - requestStartNanos);
+                        if (isHedge) {
+                            mHedgeWinCount.incrementAndGet();
+                        }
+                    }
+                });
+    }
+
+    private void record(long nanos) {
+        synchronized (mRecentNanos) {
+            mRecentNanos[mNextRecent] = nanos;
+            mNextRecent = (mNextRecent + 1) % mRecentNanos.length;
+            mRecentCount = Math.min(mRecentCount + 1, mRecentNanos.length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "HedgedRequest p%s requests=%d hedged=%.1f%% hedgeWins=%d delay=%dms latency[%s]",
+                mPercentile, getRequestCount(), 100 * getHedgeRate(), getHedgeWinCount(),
+                getHedgeDelay(TimeUnit.MILLISECONDS), mLatency);
+    }
+}
@@ -0,0 +1,114 @@
+package kurtis.rx.androidexamples;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ *
+ * Every power of two is split into four buckets, so percentiles are accurate to within 25%
+ * while recording is just a couple of atomic increments.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mTotalNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(bucketOf(nanos));
+        mCount.incrementAndGet();
+        mTotalNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = mMaxNanos.get();
+        } while (nanos > max && !mMaxNanos.compareAndSet(max, nanos));
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMean(TimeUnit unit) {
+        long count = mCount.get();
+        return count == 0 ? 0 : unit.convert(mTotalNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(mMaxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0 to 100), or 0 if nothing was
+     * recorded.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(bucket);
+            if (seen >= Math.max(1, rank)) {
+                return unit.convert(Math.min(upperBoundOf(bucket), mMaxNanos.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mBuckets.set(bucket, 0);
+        }
+        mCount.set(0);
+        mTotalNanos.set(0);
+        mMaxNanos.set(0);
+    }
+
+    /**
+     * Summary in milliseconds with microsecond precision.
+     */
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + " mean=" + millis(getMean(TimeUnit.MICROSECONDS))
+                + " p50=" + millis(getPercentile(50, TimeUnit.MICROSECONDS))
+                + " p90=" + millis(getPercentile(90, TimeUnit.MICROSECONDS))
+                + " p99=" + millis(getPercentile(99, TimeUnit.MICROSECONDS))
+                + " max=" + millis(getMax(TimeUnit.MICROSECONDS)) + "ms";
+    }
+
+    private static String millis(long micros) {
+        return String.valueOf(micros / 1000.0);
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (1L << magnitude) + ((long) subBucket << (magnitude - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
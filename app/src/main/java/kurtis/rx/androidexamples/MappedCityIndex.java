@@ -0,0 +1,260 @@
+package kurtis.rx.androidexamples;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link CityIndex} read straight from a compiled index file, normally memory-mapped.
+ *
+ * The file holds the lower-cased names sorted by their UTF-8 bytes, so a prefix search is two
+ * binary searches comparing bytes in place. Only the names of the matches are ever decoded; the
+ * list itself never becomes a {@code String[]}, and opening the index costs nothing but the
+ * mapping no matter how many cities it has.
+ *
+ * Layout, all ints big-endian:
+ * <pre>
+ * magic "CIX1", count, key bytes length, name bytes length
+ * int[count]     original position of each sorted key
+ * int[count + 1] offset of each sorted key in the key bytes
+ * int[count + 1] offset of each name, in original order, in the name bytes
+ * key bytes      lower-cased names, UTF-8, in sorted order
+ * name bytes     names, UTF-8, in original order
+ * </pre>
+ *
+ * The app's index is written at build time by the compileCityIndex task in app/build.gradle and
+ * shipped as the uncompressed asset {@link #ASSET_NAME}.
+ */
+public class MappedCityIndex implements CityIndex {
+
+    public static final String ASSET_NAME = "cities.idx";
+
+    private static final int MAGIC = 0x43495831; // "CIX1"
+    private static final int HEADER_SIZE = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+    private final int mPositionsStart;
+    private final int mKeyOffsetsStart;
+    private final int mNameOffsetsStart;
+    private final int mKeysStart;
+    private final int mNamesStart;
+
+    /**
+     * Reads the index in {@code buffer} from its position on; the buffer itself is not modified
+     * and must not be modified afterwards.
+     */
+    public MappedCityIndex(ByteBuffer buffer) {
+        mBuffer = buffer.slice();
+        if (mBuffer.remaining() < HEADER_SIZE || mBuffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a city index");
+        }
+        mCount = mBuffer.getInt(4);
+        int keysLength = mBuffer.getInt(8);
+        int namesLength = mBuffer.getInt(12);
+        mPositionsStart = HEADER_SIZE;
+        mKeyOffsetsStart = mPositionsStart + 4 * mCount;
+        mNameOffsetsStart = mKeyOffsetsStart + 4 * (mCount + 1);
+        mKeysStart = mNameOffsetsStart + 4 * (mCount + 1);
+        mNamesStart = mKeysStart + keysLength;
+        if (mNamesStart + namesLength > mBuffer.limit()) {
+            throw new IllegalArgumentException("Truncated city index");
+        }
+    }
+
+    /**
+     * Maps {@code size} bytes of the channel starting at {@code position}. The mapping stays valid
+     * after the channel is closed.
+     */
+    public static MappedCityIndex map(FileChannel channel, long position, long size) throws IOException {
+        return new MappedCityIndex(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    /**
+     * Writes the index of {@code cities} in the format described above.
+     */
+    public static void write(String[] cities, OutputStream out) throws IOException {
+        int count = cities.length;
+        final byte[][] keys = new byte[count][];
+        byte[][] names = new byte[count][];
+        Integer[] order = new Integer[count];
+        int keysLength = 0;
+        int namesLength = 0;
+        for (int i = 0; i < count; i++) {
+            keys[i] = toKey(cities[i]);
+            names[i] = cities[i].getBytes(UTF_8);
+            order[i] = i;
+            keysLength += keys[i].length;
+            namesLength += names[i].length;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return compareBytes(keys[lhs], keys[rhs]);
+            }
+        });
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(count);
+        data.writeInt(keysLength);
+        data.writeInt(namesLength);
+        for (int position : order) {
+            data.writeInt(position);
+        }
+        int offset = 0;
+        for (int position : order) {
+            data.writeInt(offset);
+            offset += keys[position].length;
+        }
+        data.writeInt(offset);
+        offset = 0;
+        for (byte[] name : names) {
+            data.writeInt(offset);
+            offset += name.length;
+        }
+        data.writeInt(offset);
+        for (int position : order) {
+            data.write(keys[position]);
+        }
+        for (byte[] name : names) {
+            data.write(name);
+        }
+        data.flush();
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    @Override
+    public String get(int position) {
+        if (position < 0 || position >= mCount) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + mCount);
+        }
+        return nameAt(mBuffer.duplicate(), position);
+    }
+
+    @Override
+    public List<String> findByPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        byte[] key = toKey(prefix);
+        int from = lowerBound(key);
+        int to = upperBound(key, from);
+        int count = to - from;
+        if (count == 0) {
+            return new ArrayList<>();
+        }
+
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = mBuffer.getInt(mPositionsStart + 4 * (from + i));
+        }
+        Arrays.sort(positions);
+        // A view of its own, so concurrent searches never share a buffer position.
+        ByteBuffer names = mBuffer.duplicate();
+        List<String> matches = new ArrayList<>(count);
+        for (int position : positions) {
+            matches.add(nameAt(names, position));
+        }
+        return matches;
+    }
+
+    /**
+     * First sorted index whose key is not less than {@code key}.
+     */
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First sorted index at or after {@code from} whose key does not start with {@code prefix}.
+     */
+    private int upperBound(byte[] prefix, int from) {
+        int low = from;
+        int high = mCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyStartsWith(mid, prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareKey(int index, byte[] key) {
+        int start = mKeysStart + mBuffer.getInt(mKeyOffsetsStart + 4 * index);
+        int length = mKeysStart + mBuffer.getInt(mKeyOffsetsStart + 4 * (index + 1)) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (mBuffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private boolean keyStartsWith(int index, byte[] prefix) {
+        int start = mKeysStart + mBuffer.getInt(mKeyOffsetsStart + 4 * index);
+        int length = mKeysStart + mBuffer.getInt(mKeyOffsetsStart + 4 * (index + 1)) - start;
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (mBuffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String nameAt(ByteBuffer names, int position) {
+        int start = mBuffer.getInt(mNameOffsetsStart + 4 * position);
+        int end = mBuffer.getInt(mNameOffsetsStart + 4 * (position + 1));
+        byte[] name = new byte[end - start];
+        names.position(mNamesStart + start);
+        names.get(name);
+        return new String(name, UTF_8);
+    }
+
+    private static byte[] toKey(String name) {
+        return CityKeys.of(name).getBytes(UTF_8);
+    }
+
+    private static int compareBytes(byte[] lhs, byte[] rhs) {
+        int common = Math.min(lhs.length, rhs.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (lhs[i] & 0xff) - (rhs[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return lhs.length - rhs.length;
+    }
+}
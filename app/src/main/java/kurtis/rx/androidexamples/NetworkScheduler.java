@@ -0,0 +1,323 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Scheduler for blocking network calls with a fixed upper bound on threads.
+ *
+ * Unlike {@link rx.schedulers.Schedulers#io()}, which starts another thread for every blocked call,
+ * at most {@code maxConcurrency} calls run at once and up to {@code queueCapacity} more wait for
+ * a free thread. Work beyond that is rejected: the subscription fails with a
+ * {@link RejectedExecutionException} instead of piling up threads.
+ *
+ * Actions of one worker run one after the other, as the Scheduler contract requires, so each
+ * worker waits for a thread as a whole and holds at most {@code queueCapacity} actions of its
+ * own; scheduling more on it is rejected as well. Unsubscribing a worker interrupts the action it
+ * is running, so a cancelled call gives its thread back right away.
+ *
+ * A delayed action, e.g. a debounce or a retry backoff, is never rejected: it has no subscriber
+ * it could fail, so dropping it would leave its stream waiting forever. If the scheduler is
+ * saturated when it comes due, it waits on the timer thread and tries again every
+ * {@value #DEFERRED_RETRY_MILLIS} ms until a thread takes it; the actions it goes on to schedule
+ * are subject to the bounds again.
+ *
+ * An action that throws is reported like on the Schedulers of RxJava, to the plugin error
+ * handler and the thread's uncaught exception handler, and the worker goes on with the next one.
+ */
+public class NetworkScheduler extends Scheduler {
+
+    private static final NetworkScheduler sDefault = new NetworkScheduler(4, 64);
+
+    static final long DEFERRED_RETRY_MILLIS = 10;
+
+    private final int mMaxConcurrency;
+    private final int mQueueCapacity;
+    private final ThreadPoolExecutor mExecutor;
+    private final ScheduledExecutorService mTimer;
+
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private final AtomicLong mDeferredCount = new AtomicLong();
+    private final AtomicLong mExecutedCount = new AtomicLong();
+    private final AtomicLong mTotalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong mMaxQueueWaitNanos = new AtomicLong();
+
+    public NetworkScheduler(int maxConcurrency, int queueCapacity) {
+        if (maxConcurrency <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Concurrency and queue capacity must be positive");
+        }
+        mMaxConcurrency = maxConcurrency;
+        mQueueCapacity = queueCapacity;
+        mExecutor = new ThreadPoolExecutor(
+                maxConcurrency,
+                maxConcurrency,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new NamedThreadFactory("RxNetworkScheduler-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        mExecutor.allowCoreThreadTimeOut(true);
+        mTimer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("RxNetworkSchedulerTimer-"));
+    }
+
+    /**
+     * The scheduler shared by all examples for their RestClient calls.
+     */
+    public static NetworkScheduler get() {
+        return sDefault;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new NetworkWorker();
+    }
+
+    public int getMaxConcurrency() {
+        return mMaxConcurrency;
+    }
+
+    /**
+     * Threads currently running an action.
+     */
+    public int getActiveCount() {
+        return mExecutor.getActiveCount();
+    }
+
+    /**
+     * Workers with pending actions that are waiting for a free thread.
+     */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    /**
+     * Times a delayed action came due while the scheduler was saturated and had to wait.
+     */
+    public long getDeferredCount() {
+        return mDeferredCount.get();
+    }
+
+    public long getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /**
+     * Average time from scheduling an action until it started running.
+     */
+    public long getAverageQueueWait(TimeUnit unit) {
+        long executed = mExecutedCount.get();
+        return executed == 0 ? 0 : unit.convert(mTotalQueueWaitNanos.get() / executed, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxQueueWait(TimeUnit unit) {
+        return unit.convert(mMaxQueueWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkScheduler{maxConcurrency=" + mMaxConcurrency
+                + ", active=" + getActiveCount()
+                + ", queued=" + getQueueDepth()
+                + ", executed=" + getExecutedCount()
+                + ", rejected=" + getRejectedCount()
+                + ", deferred=" + getDeferredCount()
+                + ", avgQueueWaitMs=" + getAverageQueueWait(TimeUnit.MILLISECONDS)
+                + ", maxQueueWaitMs=" + getMaxQueueWait(TimeUnit.MILLISECONDS) + "}";
+    }
+
+    /**
+     * What RxJava's own schedulers do with an action that throws, as there is no subscriber left
+     * to hand the error to.
+     */
+    private static void reportError(Throwable throwable) {
+        IllegalStateException error = throwable instanceof OnErrorNotImplementedException
+                ? new IllegalStateException("Exception thrown on Scheduler.Worker thread. Add `onError` handling.", throwable)
+                : new IllegalStateException("Fatal Exception thrown on Scheduler.Worker thread.", throwable);
+        RxJavaPlugins.getInstance().getErrorHandler().handleError(error);
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+
+    private void recordQueueWait(long waitNanos) {
+        mExecutedCount.incrementAndGet();
+        mTotalQueueWaitNanos.addAndGet(waitNanos);
+        long max;
+        do {
+            max = mMaxQueueWaitNanos.get();
+        } while (waitNanos > max && !mMaxQueueWaitNanos.compareAndSet(max, waitNanos));
+    }
+
+    /**
+     * Queues its actions and drains them on one pool thread at a time.
+     */
+    private final class NetworkWorker extends Worker implements Runnable {
+
+        private final Queue<QueuedAction> mQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger mWip = new AtomicInteger();
+        private volatile boolean mUnsubscribed;
+        private Thread mRunner;
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            if (mUnsubscribed) {
+                return Subscriptions.unsubscribed();
+            }
+            QueuedAction queuedAction = new QueuedAction(RxJavaPlugins.getInstance().getSchedulersHook().onSchedule(action));
+            if (!enqueue(queuedAction)) {
+                mRejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("Network scheduler is saturated: " + NetworkScheduler.this);
+            }
+            return queuedAction;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            if (mUnsubscribed) {
+                return Subscriptions.unsubscribed();
+            }
+            // Only the timer thread waits; the action takes a pool thread once it is due.
+            final QueuedAction queuedAction = new QueuedAction(RxJavaPlugins.getInstance().getSchedulersHook().onSchedule(action));
+            mTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (mUnsubscribed || queuedAction.isUnsubscribed()) {
+                        return;
+                    }
+                    if (!enqueue(queuedAction)) {
+                        mDeferredCount.incrementAndGet();
+                        mTimer.schedule(this, DEFERRED_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }, delayTime, unit);
+            return queuedAction;
+        }
+
+        /**
+         * Returns false, leaving nothing behind, when this worker's queue is full or it needs a
+         * thread and the executor's queue is full.
+         */
+        private boolean enqueue(QueuedAction queuedAction) {
+            if (mWip.get() >= mQueueCapacity) {
+                return false;
+            }
+            queuedAction.mQueuedAtNanos = System.nanoTime();
+            mQueue.offer(queuedAction);
+            if (mWip.getAndIncrement() == 0) {
+                try {
+                    mExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    mQueue.remove(queuedAction);
+                    mWip.decrementAndGet();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                mRunner = Thread.currentThread();
+            }
+            try {
+                do {
+                    QueuedAction queuedAction = mQueue.poll();
+                    if (queuedAction != null && !mUnsubscribed && !queuedAction.isUnsubscribed()) {
+                        recordQueueWait(System.nanoTime() - queuedAction.mQueuedAtNanos);
+                        try {
+                            queuedAction.mAction.call();
+                        } catch (Throwable throwable) {
+                            // After an unsubscribe this is just the interrupted call giving up.
+                            if (!mUnsubscribed && !queuedAction.isUnsubscribed()) {
+                                reportError(throwable);
+                            }
+                        }
+                    }
+                } while (mWip.decrementAndGet() > 0);
+            } finally {
+                synchronized (this) {
+                    mRunner = null;
+                }
+                // An unsubscribe that raced with the end of the last action must not leak into
+                // the next task this pool thread runs.
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            mUnsubscribed = true;
+            mQueue.clear();
+            synchronized (this) {
+                if (mRunner != null && mRunner != Thread.currentThread()) {
+                    mRunner.interrupt();
+                }
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mUnsubscribed;
+        }
+    }
+
+    private static final class QueuedAction implements Subscription {
+
+        final Action0 mAction;
+        volatile long mQueuedAtNanos;
+        private volatile boolean mUnsubscribed;
+
+        QueuedAction(Action0 action) {
+            mAction = action;
+        }
+
+        @Override
+        public void unsubscribe() {
+            mUnsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mUnsubscribed;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            mPrefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mPrefix + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package kurtis.rx.androidexamples;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Delivers at most one value per display frame, always the latest one.
+ *
+ * Values may arrive on any thread and at any rate. They are held until the next frame and then
+ * handed downstream on the main thread, replacing whatever the frame would have shown before,
+ * so a burst of emissions costs one UI update instead of one per emission. Completion and errors
+ * are delivered on the frame after the last value.
+ *
+ * The operator counts what it received and delivered and how much main-thread time delivering
+ * took, so one instance should be used per subscription. It must be created on the main thread.
+ */
+public class OperatorCoalesceToFrame<T> implements Observable.Operator<T, T> {
+
+    private static final Object NONE = new Object();
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+    private final AtomicLong mDeliveryNanos = new AtomicLong();
+
+    @Override
+    public Subscriber<? super T> call(final Subscriber<? super T> child) {
+        final FrameSubscriber parent = new FrameSubscriber(child);
+        child.add(parent);
+        child.add(Subscriptions.create(new Action0() {
+            @Override
+            public void call() {
+                mChoreographer.removeFrameCallback(parent);
+            }
+        }));
+        return parent;
+    }
+
+    public long getReceivedCount() {
+        return mReceivedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    /**
+     * Values that were replaced by a newer one before their frame came.
+     */
+    public long getDroppedCount() {
+        return mReceivedCount.get() - mDeliveredCount.get();
+    }
+
+    /**
+     * Main-thread time spent delivering values downstream, i.e. in the UI updates themselves.
+     */
+    public long getDeliveryNanos() {
+        return mDeliveryNanos.get();
+    }
+
+    private final class FrameSubscriber extends Subscriber<T> implements Choreographer.FrameCallback {
+
+        private final Subscriber<? super T> mChild;
+        private final AtomicReference<Object> mLatest = new AtomicReference<>(NONE);
+        private final AtomicReference<Object> mTerminal = new AtomicReference<>();
+        private final Object mCompleted = new Object();
+        private boolean mDone;
+
+        FrameSubscriber(Subscriber<? super T> child) {
+            mChild = child;
+        }
+
+        @Override
+        public void onStart() {
+            request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T value) {
+            mReceivedCount.incrementAndGet();
+            if (mLatest.getAndSet(value) == NONE) {
+                // Nothing was pending, so no frame callback is posted yet.
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            terminate(mCompleted);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            terminate(e);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void doFrame(long frameTimeNanos) {
+            if (mDone || mChild.isUnsubscribed()) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            Object latest = mLatest.getAndSet(NONE);
+            if (latest != NONE) {
+                mDeliveredCount.incrementAndGet();
+                mChild.onNext((T) latest);
+            }
+            Object terminal = mTerminal.get();
+            if (terminal != null) {
+                mDone = true;
+                if (terminal == mCompleted) {
+                    mChild.onCompleted();
+                } else {
+                    mChild.onError((Throwable) terminal);
+                }
+            }
+            mDeliveryNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        private void terminate(Object terminal) {
+            if (mTerminal.compareAndSet(null, terminal) && mLatest.get() == NONE) {
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+    }
+}
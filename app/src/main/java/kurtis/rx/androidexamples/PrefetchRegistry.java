@@ -0,0 +1,166 @@
+package kurtis.rx.androidexamples;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.observables.ConnectableObservable;
+
+/**
+ * Starts the load a screen is going to need before the screen exists.
+ *
+ * Each screen, identified by its Activity class, registers how its data is loaded. When the user
+ * taps their way towards it, {@link #prefetch(Class)} starts that load right away on the given
+ * scheduler, so it overlaps with the Activity being started and inflated. The Activity then
+ * {@link #claim(Class)}s the load, in flight or finished, and gets everything it emitted replayed.
+ *
+ * A prefetch nobody claims within the expiry time is unsubscribed and dropped, so a tap that never
+ * leads to its screen doesn't keep a load and its result around.
+ */
+public class PrefetchRegistry {
+
+    private static final PrefetchRegistry sInstance =
+            new PrefetchRegistry(10, TimeUnit.SECONDS, NetworkScheduler.get());
+
+    private final long mExpiryMillis;
+    private final Scheduler mScheduler;
+
+    private final Map<Class<?>, Func0<? extends Observable<?>>> mLoaders = new HashMap<>();
+    private final Map<Class<?>, Prefetch> mPrefetches = new HashMap<>();
+
+    private int mPrefetchCount;
+    private int mClaimCount;
+    private int mMissCount;
+    private int mExpiredCount;
+
+    /**
+     * @param scheduler the loads are subscribed on, and expire on
+     */
+    public PrefetchRegistry(long expiry, TimeUnit unit, Scheduler scheduler) {
+        mExpiryMillis = unit.toMillis(expiry);
+        mScheduler = scheduler;
+    }
+
+    /**
+     * The process-wide registry, with prefetches on the {@link NetworkScheduler} expiring after 10
+     * seconds.
+     */
+    public static PrefetchRegistry get() {
+        return sInstance;
+    }
+
+    public synchronized <T> void register(Class<?> target, Func0<Observable<T>> loader) {
+        mLoaders.put(target, loader);
+    }
+
+    /**
+     * Starts loading the data of {@code target}, unless nothing is registered for it or a
+     * prefetch for it is already waiting to be claimed.
+     */
+    public void prefetch(Class<?> target) {
+        Func0<? extends Observable<?>> loader;
+        synchronized (this) {
+            loader = mLoaders.get(target);
+            if (loader == null || mPrefetches.containsKey(target)) {
+                return;
+            }
+        }
+        ConnectableObservable<?> load = loader.call().subscribeOn(mScheduler).replay();
+        final Prefetch prefetch = new Prefetch(load, load.connect(), mScheduler.createWorker());
+        synchronized (this) {
+            if (mPrefetches.containsKey(target)) {
+                prefetch.cancel();
+                return;
+            }
+            mPrefetches.put(target, prefetch);
+            mPrefetchCount++;
+        }
+        final Class<?> key = target;
+        prefetch.mExpiry.schedule(new Action0() {
+            @Override
+            public void call() {
+                expire(key, prefetch);
+            }
+        }, mExpiryMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands over the prefetched load of {@code target}, which replays what it emitted so far and
+     * then continues live, or returns null if there is none. A prefetch can be claimed once.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Observable<T> claim(Class<?> target) {
+        Prefetch prefetch;
+        synchronized (this) {
+            prefetch = mPrefetches.remove(target);
+            if (prefetch == null) {
+                mMissCount++;
+                return null;
+            }
+            mClaimCount++;
+        }
+        prefetch.mExpiry.unsubscribe();
+        return (Observable<T>) prefetch.mLoad;
+    }
+
+    public synchronized int getPrefetchCount() {
+        return mPrefetchCount;
+    }
+
+    public synchronized int getClaimCount() {
+        return mClaimCount;
+    }
+
+    /**
+     * Claims that found no prefetch.
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    private void expire(Class<?> target, Prefetch prefetch) {
+        synchronized (this) {
+            if (mPrefetches.get(target) != prefetch) {
+                return;
+            }
+            mPrefetches.remove(target);
+            mExpiredCount++;
+        }
+        prefetch.cancel();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PrefetchRegistry prefetched=" + mPrefetchCount
+                + " claimed=" + mClaimCount
+                + " missed=" + mMissCount
+                + " expired=" + mExpiredCount
+                + " pending=" + mPrefetches.size();
+    }
+
+    private static final class Prefetch {
+        final Observable<?> mLoad;
+        final Subscription mConnection;
+        final Scheduler.Worker mExpiry;
+
+        Prefetch(Observable<?> load, Subscription connection, Scheduler.Worker expiry) {
+            mLoad = load;
+            mConnection = connection;
+            mExpiry = expiry;
+        }
+
+        void cancel() {
+            mConnection.unsubscribe();
+            mExpiry.unsubscribe();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.functions.Func1;
+
+/**
+ * Wraps a prefix search so that a query extending the previous one is answered locally.
+ *
+ * Every city matching "San F" also matches "San", so while the user keeps typing we only need to
+ * filter the last result set. The wrapped search is called again only when the new query is not
+ * an extension of the last one, e.g. after a backspace or an edit earlier in the string.
+ */
+public class RefiningCitySearch implements Func1<String, List<String>> {
+
+    private final Func1<String, List<String>> mSearch;
+
+    private String mLastKey;
+    private List<String> mLastResults;
+    private int mFullSearchCount;
+    private int mRefinedSearchCount;
+
+    public RefiningCitySearch(Func1<String, List<String>> search) {
+        mSearch = search;
+    }
+
+    @Override
+    public List<String> call(String query) {
+        String key = CityKeys.of(query);
+        synchronized (this) {
+            if (mLastKey != null && !mLastKey.isEmpty() && key.startsWith(mLastKey)) {
+                List<String> refined = filter(mLastResults, key);
+                mLastKey = key;
+                mLastResults = refined;
+                mRefinedSearchCount++;
+                return new ArrayList<>(refined);
+            }
+        }
+
+        List<String> results = mSearch.call(query);
+        synchronized (this) {
+            mLastKey = key;
+            mLastResults = new ArrayList<>(results);
+            mFullSearchCount++;
+        }
+        return results;
+    }
+
+    public synchronized int getFullSearchCount() {
+        return mFullSearchCount;
+    }
+
+    public synchronized int getRefinedSearchCount() {
+        return mRefinedSearchCount;
+    }
+
+    private static List<String> filter(List<String> cities, String key) {
+        List<String> matches = new ArrayList<>();
+        for (String city : cities) {
+            if (CityKeys.of(city).startsWith(key)) {
+                matches.add(city);
+            }
+        }
+        return matches;
+    }
+}
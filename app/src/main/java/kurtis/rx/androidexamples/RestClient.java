@@ -1,18 +1,46 @@
 package kurtis.rx.androidexamples;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
 
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.Schedulers;
 
 /**
  * This is a mock REST Client. It simulates making blocking calls to an REST endpoint.
  */
 public class RestClient {
+    private static final String TAG = RestClient.class.getName();
+
+    private static CityIndex sCityIndex;
+    private static FuzzyCityIndex sFuzzyCityIndex;
+
     private Context mContext;
 
     public RestClient(Context context) {
-        mContext = context;
+        // Requests may outlive the Activity that started them, so never hold on to it.
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Returns a client serving the same data without blocking, with the given delays and with
+     * timers on the computation scheduler.
+     */
+    public AsyncRestClient async(SimulatedLatency tvShowLatency, SimulatedLatency searchLatency) {
+        return new AsyncRestClient(getCityIndex(), createTvShowList(), tvShowLatency, searchLatency, Schedulers.computation());
+    }
+
+    /**
+     * The asynchronous counterpart of this client, with the same fixed delays.
+     */
+    public AsyncRestClient async() {
+        return async(SimulatedLatency.fixed(5000), SimulatedLatency.fixed(500));
     }
 
     public List<String> getFavoriteTvShows() {
@@ -35,6 +63,27 @@ public class RestClient {
         throw new RuntimeException("Failed to load");
     }
 
+    /**
+     * Returns up to {@code limit} shows starting at {@code offset}. A page shorter than
+     * {@code limit} is the last one. Each page costs its share of the full list's delay.
+     */
+    public List<String> getFavoriteTvShowsPage(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("Expected offset >= 0 and limit >= 1");
+        }
+        List<String> tvShows = createTvShowList();
+        int pageCount = Math.max(1, (tvShows.size() + limit - 1) / limit);
+        try {
+            // "Simulate" the delay of network.
+            Thread.sleep(5000 / pageCount);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        int from = Math.min(offset, tvShows.size());
+        int to = from + Math.min(limit, tvShows.size() - from);
+        return new ArrayList<>(tvShows.subList(from, to));
+    }
+
     private List<String> createTvShowList() {
         List<String> tvShows = new ArrayList<>();
         tvShows.add("The Joy of Painting");
@@ -54,28 +103,83 @@ public class RestClient {
         return tvShows;
     }
 
+    /**
+     * Interrupting the calling thread cancels the search: it fails with a
+     * {@link CancelledException} instead of returning a result nobody asked for anymore.
+     */
     public List<String> searchForCity(String searchString) {
         try {
             // "Simulate" the delay of network.
             Thread.sleep(500);
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw new CancelledException("Search cancelled", e);
         }
         return getMatchingCities(searchString);
     }
 
+    /**
+     * Typo-tolerant variant of {@link #searchForCity(String)}: up to {@code maxResults} cities
+     * starting with something close to the search string, closest first. Matching stops after
+     * {@code budget} and returns what it has found by then, marked as truncated.
+     */
+    public FuzzyCityIndex.Matches searchForCityFuzzy(String searchString, int maxResults, long budget, TimeUnit unit) {
+        try {
+            // "Simulate" the delay of network.
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancelledException("Search cancelled", e);
+        }
+        return getFuzzyCityIndex().search(searchString, maxResults, budget, unit);
+    }
+
     private List<String> getMatchingCities(String searchString) {
-        if (searchString.isEmpty()) {
-            return new ArrayList<>();
+        return getCityIndex().findByPrefix(searchString);
+    }
+
+    /**
+     * The city list never changes at runtime, so the index is opened on first use and shared by
+     * every client.
+     */
+    private CityIndex getCityIndex() {
+        synchronized (RestClient.class) {
+            if (sCityIndex == null) {
+                sCityIndex = openCityIndex();
+            }
+            return sCityIndex;
+        }
+    }
+
+    private FuzzyCityIndex getFuzzyCityIndex() {
+        synchronized (RestClient.class) {
+            if (sFuzzyCityIndex == null) {
+                sFuzzyCityIndex = new FuzzyCityIndex(getCityIndex());
+            }
+            return sFuzzyCityIndex;
         }
+    }
 
-        String[] cities = mContext.getResources().getStringArray(R.array.city_list);
-        List<String> toReturn = new ArrayList<>();
-        for (String city : cities) {
-            if (city.toLowerCase().startsWith(searchString.toLowerCase())) {
-                toReturn.add(city);
+    /**
+     * Maps the index compiled from R.array.city_list at build time, so no city is decoded until it
+     * matches a search.
+     */
+    private CityIndex openCityIndex() {
+        AssetFileDescriptor descriptor = null;
+        try {
+            descriptor = mContext.getAssets().openFd(MappedCityIndex.ASSET_NAME);
+            FileInputStream in = descriptor.createInputStream();
+            return MappedCityIndex.map(in.getChannel(), descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        } catch (IOException e) {
+            Log.w(TAG, "No compiled city index, building one from the resources", e);
+            return new CityPrefixIndex(mContext.getResources().getStringArray(R.array.city_list));
+        } finally {
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException ignored) {
+                }
             }
         }
-        return toReturn;
     }
 }
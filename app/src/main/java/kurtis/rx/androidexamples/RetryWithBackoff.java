@@ -0,0 +1,90 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+
+/**
+ * {@code retryWhen} handler retrying a failed call after exponentially growing, randomized
+ * delays: retry n waits a random time between zero and {@code min(maxDelay, baseDelay * 2^n)}.
+ *
+ * The randomness ("full jitter") keeps clients that failed together from retrying together and
+ * hitting a recovering backend all at once. Rejections by an open {@link CircuitBreaker} are
+ * passed on without retrying, since they are meant to fail fast, and so are cancelled calls
+ * ({@link CancelledException}), whose result nobody is waiting for.
+ */
+public class RetryWithBackoff implements Func1<Observable<? extends Throwable>, Observable<?>> {
+
+    private final int mMaxRetries;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final Scheduler mScheduler;
+    private final Random mRandom;
+
+    private final AtomicLong mRetryCount = new AtomicLong();
+    private final AtomicLong mGivenUpCount = new AtomicLong();
+
+    public RetryWithBackoff(int maxRetries, long baseDelay, long maxDelay, TimeUnit unit, Scheduler scheduler) {
+        this(maxRetries, baseDelay, maxDelay, unit, scheduler, new Random());
+    }
+
+    /**
+     * @param random source of the jitter, seeded for reproducible delays
+     */
+    public RetryWithBackoff(int maxRetries, long baseDelay, long maxDelay, TimeUnit unit, Scheduler scheduler,
+                            Random random) {
+        mMaxRetries = maxRetries;
+        mBaseDelayMillis = unit.toMillis(baseDelay);
+        mMaxDelayMillis = unit.toMillis(maxDelay);
+        mScheduler = scheduler;
+        mRandom = random;
+    }
+
+    @Override
+    public Observable<?> call(Observable<? extends Throwable> errors) {
+        // Called once per subscription, so every subscriber counts its own retries.
+        final int[] retries = new int[1];
+        return errors.flatMap(new Func1<Throwable, Observable<?>>() {
+            @Override
+            public Observable<?> call(Throwable error) {
+                if (error instanceof CancelledException) {
+                    return Observable.error(error);
+                }
+                if (error instanceof CircuitBreaker.OpenException || retries[0] >= mMaxRetries) {
+                    mGivenUpCount.incrementAndGet();
+                    return Observable.error(error);
+                }
+                mRetryCount.incrementAndGet();
+                return Observable.timer(delayMillis(retries[0]++), TimeUnit.MILLISECONDS, mScheduler);
+            }
+        });
+    }
+
+    public long getRetryCount() {
+        return mRetryCount.get();
+    }
+
+    /**
+     * Failures passed on to the subscriber, after the last retry or without retrying.
+     */
+    public long getGivenUpCount() {
+        return mGivenUpCount.get();
+    }
+
+    private long delayMillis(int retry) {
+        long cap = mMaxDelayMillis;
+        if (retry < 62 && mBaseDelayMillis <= mMaxDelayMillis >> retry) {
+            cap = mBaseDelayMillis << retry;
+        }
+        return (long) (mRandom.nextDouble() * (cap + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "RetryWithBackoff retries=" + getRetryCount() + " givenUp=" + getGivenUpCount();
+    }
+}
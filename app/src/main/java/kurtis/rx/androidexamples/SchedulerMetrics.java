@@ -0,0 +1,212 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.android.plugins.RxAndroidPlugins;
+import rx.android.plugins.RxAndroidSchedulersHook;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.plugins.RxJavaSchedulersHook;
+
+/**
+ * Opt-in instrumentation of every action run by an Rx scheduler, built on the RxJava and
+ * RxAndroid schedulers hooks.
+ *
+ * For each scheduler it records how many actions ran, how long they waited between being
+ * scheduled and starting (queue latency, which includes any delay they were scheduled with) and
+ * how long they ran. Schedulers are told apart by the name of the thread an action runs on,
+ * e.g. "RxComputationThreadPool", "RxCachedThreadScheduler" (io) or "RxNetworkScheduler"; actions scheduled through
+ * {@code AndroidSchedulers.mainThread()} are reported as "main".
+ *
+ * With {@code sampleEvery} greater than 1 only every n-th action is wrapped and timed; the others
+ * run untouched, which keeps the overhead low enough for production. Counts of sampled schedulers
+ * are then estimates scaled up by the sample rate.
+ *
+ * RxJava only accepts a hook before it first uses one, so {@link #install(int)} has to run
+ * before anything else touches a scheduler, i.e. in {@link ExamplesApplication#onCreate()}.
+ */
+public final class SchedulerMetrics {
+
+    private static final String MAIN_THREAD = "main";
+
+    private static volatile SchedulerMetrics sInstance;
+
+    private final int mSampleEvery;
+    private final AtomicLong mScheduledCount = new AtomicLong();
+    private final ConcurrentMap<String, Stats> mStats = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> mSchedulerNames = new ThreadLocal<String>() {
+        @Override
+        protected String initialValue() {
+            return schedulerNameOf(Thread.currentThread());
+        }
+    };
+
+    private SchedulerMetrics(int sampleEvery) {
+        mSampleEvery = sampleEvery;
+    }
+
+    /**
+     * Starts recording. {@code sampleEvery} of 1 times every action, n times one action in n.
+     *
+     * @throws IllegalStateException if metrics or other scheduler hooks are already installed
+     */
+    public static synchronized void install(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+        if (sInstance != null) {
+            throw new IllegalStateException("Scheduler metrics are already installed");
+        }
+        final SchedulerMetrics metrics = new SchedulerMetrics(sampleEvery);
+        RxJavaPlugins.getInstance().registerSchedulersHook(new RxJavaSchedulersHook() {
+            @Override
+            public Action0 onSchedule(Action0 action) {
+                return metrics.wrap(action, null);
+            }
+        });
+        RxAndroidPlugins.getInstance().registerSchedulersHook(new RxAndroidSchedulersHook() {
+            @Override
+            public Action0 onSchedule(Action0 action) {
+                return metrics.wrap(action, MAIN_THREAD);
+            }
+        });
+        sInstance = metrics;
+    }
+
+    public static boolean isInstalled() {
+        return sInstance != null;
+    }
+
+    /**
+     * Statistics of one scheduler, or null if it has not run a recorded action (or metrics are
+     * not installed).
+     */
+    public static Stats getStats(String scheduler) {
+        SchedulerMetrics metrics = sInstance;
+        return metrics == null ? null : metrics.mStats.get(scheduler);
+    }
+
+    /**
+     * Human readable summary of all schedulers, one per line.
+     */
+    public static String dump() {
+        SchedulerMetrics metrics = sInstance;
+        if (metrics == null) {
+            return "SchedulerMetrics not installed";
+        }
+        StringBuilder dump = new StringBuilder()
+                .append("SchedulerMetrics sampleEvery=").append(metrics.mSampleEvery)
+                .append(" scheduled=").append(metrics.mScheduledCount.get());
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(metrics.mStats).entrySet()) {
+            dump.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. between test cases.
+     */
+    public static void reset() {
+        SchedulerMetrics metrics = sInstance;
+        if (metrics != null) {
+            metrics.mScheduledCount.set(0);
+            metrics.mStats.clear();
+        }
+    }
+
+    private Action0 wrap(Action0 action, String schedulerName) {
+        long scheduled = mScheduledCount.incrementAndGet();
+        if (mSampleEvery > 1 && scheduled % mSampleEvery != 0) {
+            return action;
+        }
+        return new TimedAction(action, schedulerName);
+    }
+
+    private Stats statsOf(String schedulerName) {
+        Stats stats = mStats.get(schedulerName);
+        if (stats == null) {
+            Stats created = new Stats(mSampleEvery);
+            stats = mStats.putIfAbsent(schedulerName, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * "RxComputationThreadPool-3" belongs to "RxComputationThreadPool".
+     */
+    private static String schedulerNameOf(Thread thread) {
+        String name = thread.getName();
+        int end = name.length();
+        while (end > 0 && Character.isDigit(name.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 0 && end < name.length() && name.charAt(end - 1) == '-') {
+            end--;
+        }
+        return end == 0 ? name : name.substring(0, end);
+    }
+
+    private final class TimedAction implements Action0 {
+
+        private final Action0 mAction;
+        private final String mSchedulerName;
+        private final long mScheduledAtNanos = System.nanoTime();
+
+        TimedAction(Action0 action, String schedulerName) {
+            mAction = action;
+            mSchedulerName = schedulerName;
+        }
+
+        @Override
+        public void call() {
+            long startNanos = System.nanoTime();
+            Stats stats = statsOf(mSchedulerName != null ? mSchedulerName : mSchedulerNames.get());
+            stats.mQueueLatency.record(startNanos - mScheduledAtNanos);
+            try {
+                mAction.call();
+            } finally {
+                stats.mExecutionTime.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    public static final class Stats {
+
+        private final int mSampleEvery;
+        private final LatencyHistogram mQueueLatency = new LatencyHistogram();
+        private final LatencyHistogram mExecutionTime = new LatencyHistogram();
+
+        Stats(int sampleEvery) {
+            mSampleEvery = sampleEvery;
+        }
+
+        /**
+         * Number of actions run, estimated from the samples when sampling.
+         */
+        public long getTaskCount() {
+            return mExecutionTime.getCount() * mSampleEvery;
+        }
+
+        public LatencyHistogram getQueueLatency() {
+            return mQueueLatency;
+        }
+
+        public LatencyHistogram getExecutionTime() {
+            return mExecutionTime;
+        }
+
+        @Override
+        public String toString() {
+            return "tasks=" + getTaskCount()
+                    + " queue[" + mQueueLatency + "]"
+                    + " exec[" + mExecutionTime + "]";
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU cache of search results with a time-to-live.
+ *
+ * Queries are keyed case-insensitively, the same way the search itself matches. The cache is
+ * bounded by entry count and by an estimate of the memory held by the cached strings; the least
+ * recently used entries are evicted first. Hit, miss, eviction and expiration counts are kept so
+ * the bounds can be sized against real traffic.
+ */
+public class SearchResultCache {
+
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final int mMaxEntries;
+    private final long mMaxBytes;
+    private final long mTtlNanos;
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long mBytes;
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+    private long mExpirationCount;
+
+    public SearchResultCache(int maxEntries, long maxBytes, long ttl, TimeUnit unit) {
+        if (maxEntries <= 0 || maxBytes <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        mMaxEntries = maxEntries;
+        mMaxBytes = maxBytes;
+        mTtlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Returns the cached results for the query, or null if there are none or they have expired.
+     */
+    public synchronized List<String> get(String query) {
+        String key = normalize(query);
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        if (System.nanoTime() - entry.mCreatedAtNanos > mTtlNanos) {
+            remove(key);
+            mExpirationCount++;
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return entry.mResults;
+    }
+
+    public synchronized void put(String query, List<String> results) {
+        String key = normalize(query);
+        Entry entry = new Entry(
+                Collections.unmodifiableList(new ArrayList<>(results)),
+                estimateBytes(key, results),
+                System.nanoTime());
+        if (entry.mBytes > mMaxBytes) {
+            // Larger than the whole cache, keeping it would only flush everything else.
+            return;
+        }
+
+        remove(key);
+        mEntries.put(key, entry);
+        mBytes += entry.mBytes;
+        trimToSize();
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mBytes = 0;
+    }
+
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    public synchronized long getByteSize() {
+        return mBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public synchronized long getExpirationCount() {
+        return mExpirationCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchResultCache{entries=" + mEntries.size()
+                + ", bytes=" + mBytes
+                + ", hits=" + mHitCount
+                + ", misses=" + mMissCount
+                + ", evictions=" + mEvictionCount
+                + ", expirations=" + mExpirationCount + "}";
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> eldest = mEntries.values().iterator();
+        while ((mEntries.size() > mMaxEntries || mBytes > mMaxBytes) && eldest.hasNext()) {
+            mBytes -= eldest.next().mBytes;
+            eldest.remove();
+            mEvictionCount++;
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = mEntries.remove(key);
+        if (removed != null) {
+            mBytes -= removed.mBytes;
+        }
+    }
+
+    private static String normalize(String query) {
+        return CityKeys.of(query);
+    }
+
+    private static long estimateBytes(String key, List<String> results) {
+        long bytes = STRING_OVERHEAD_BYTES + 2L * key.length();
+        for (String result : results) {
+            bytes += STRING_OVERHEAD_BYTES + 2L * result.length();
+        }
+        return bytes;
+    }
+
+    private static class Entry {
+        final List<String> mResults;
+        final long mBytes;
+        final long mCreatedAtNanos;
+
+        Entry(List<String> results, long bytes, long createdAtNanos) {
+            mResults = results;
+            mBytes = bytes;
+            mCreatedAtNanos = createdAtNanos;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package kurtis.rx.androidexamples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.FuncN;
+
+/**
+ * {@link CityIndex} split into shards that are searched in parallel.
+ *
+ * A prefix index finds its matches with two binary searches, but still has to put them back into
+ * list order and copy them out one by one. For a short prefix over millions of names that is tens
+ * of thousands of matches, all on one thread. Here the list is cut into contiguous ranges, one
+ * {@link CityPrefixIndex} each; a search runs every shard on the scheduler at once and joins their
+ * results in shard order, which is list order since the ranges are contiguous.
+ *
+ * One shard per core of the scheduler is the natural count, e.g. {@code
+ * Runtime.getRuntime().availableProcessors()} with {@code Schedulers.computation()}. For the few
+ * hundred cities the app ships with, the hops cost more than the search and a single index is
+ * the better choice.
+ */
+public class ShardedCityIndex implements CityIndex {
+
+    private final CityPrefixIndex[] mShards;
+    /**
+     * Position in the whole list of each shard's first city, plus the list size at the end.
+     */
+    private final int[] mStarts;
+    private final Scheduler mScheduler;
+
+    public ShardedCityIndex(String[] cities, int shardCount, Scheduler scheduler) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1: " + shardCount);
+        }
+        int count = Math.max(1, Math.min(shardCount, cities.length));
+        mShards = new CityPrefixIndex[count];
+        mStarts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            mStarts[i] = (int) ((long) cities.length * i / count);
+        }
+        mStarts[count] = cities.length;
+        for (int i = 0; i < count; i++) {
+            mShards[i] = new CityPrefixIndex(Arrays.copyOfRange(cities, mStarts[i], mStarts[i + 1]));
+        }
+        mScheduler = scheduler;
+    }
+
+    public int getShardCount() {
+        return mShards.length;
+    }
+
+    @Override
+    public int size() {
+        return mStarts[mShards.length];
+    }
+
+    @Override
+    public String get(int position) {
+        // No shard is empty, so the starts are distinct.
+        int shard = Arrays.binarySearch(mStarts, position);
+        if (shard < 0) {
+            shard = -shard - 2;
+        }
+        return mShards[shard].get(position - mStarts[shard]);
+    }
+
+    /**
+     * Searches on the scheduler and blocks the calling thread until every shard is done.
+     */
+    @Override
+    public List<String> findByPrefix(String prefix) {
+        return search(prefix).toBlocking().single();
+    }
+
+    /**
+     * Emits the matches of {@link #findByPrefix(String)} once the last shard is done, on that
+     * shard's thread.
+     */
+    public Observable<List<String>> search(final String prefix) {
+        if (prefix.isEmpty()) {
+            return Observable.<List<String>>just(new ArrayList<String>());
+        }
+        List<Observable<List<String>>> shardSearches = new ArrayList<>(mShards.length);
+        for (final CityPrefixIndex shard : mShards) {
+            shardSearches.add(Observable
+                    .fromCallable(new Callable<List<String>>() {
+                        @Override
+                        public List<String> call() {
+                            return shard.findByPrefix(prefix);
+                        }
+                    })
+                    .subscribeOn(mScheduler));
+        }
+        // zip subscribes to every shard at once and combines them in the order given.
+        return Observable.zip(shardSearches, new FuncN<List<String>>() {
+            @Override
+            public List<String> call(Object... results) {
+                int count = 0;
+                for (Object result : results) {
+                    count += ((List<?>) result).size();
+                }
+                List<String> matches = new ArrayList<>(count);
+                for (Object result : results) {
+                    @SuppressWarnings("unchecked")
+                    List<String> shardMatches = (List<String>) result;
+                    matches.addAll(shardMatches);
+                }
+                return matches;
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package kurtis.rx.androidexamples;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribution of simulated network delays.
+ */
+public abstract class SimulatedLatency {
+
+    /**
+     * z-score of the 99th percentile of a standard normal distribution.
+     */
+    private static final double Z_99 = 2.3263;
+
+    /**
+     * Returns the delay for the next call, in milliseconds.
+     */
+    public abstract long nextDelayMillis();
+
+    /**
+     * Every call takes exactly {@code millis}.
+     */
+    public static SimulatedLatency fixed(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Latency must not be negative");
+        }
+        return new SimulatedLatency() {
+            @Override
+            public long nextDelayMillis() {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed(" + millis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Calls take anywhere between {@code minMillis} and {@code maxMillis}, all equally likely.
+     */
+    public static SimulatedLatency uniform(final long minMillis, final long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Expected 0 <= minMillis <= maxMillis");
+        }
+        return new SimulatedLatency() {
+            @Override
+            public long nextDelayMillis() {
+                return minMillis + ThreadLocalRandom.current().nextLong(maxMillis - minMillis + 1);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + minMillis + "ms.." + maxMillis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Log-normal delays: most calls take about {@code medianMillis}, one in a hundred takes
+     * {@code p99Millis} or longer. That is how real backends tend to behave.
+     */
+    public static SimulatedLatency longTail(final long medianMillis, final long p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException("Expected 0 < medianMillis <= p99Millis");
+        }
+        final double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        return new SimulatedLatency() {
+            @Override
+            public long nextDelayMillis() {
+                return Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "longTail(median=" + medianMillis + "ms, p99=" + p99Millis + "ms)";
+            }
+        };
+    }
+}
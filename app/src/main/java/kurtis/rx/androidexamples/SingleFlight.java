@@ -0,0 +1,80 @@
+package kurtis.rx.androidexamples;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+/**
+ * Coalesces concurrent executions of the same logical request.
+ *
+ * The first subscriber for a key starts the request; everyone who subscribes while it is in flight
+ * shares that one execution and receives its emissions or its error. Once the request terminates
+ * the key is released, and the next subscriber starts a fresh one.
+ */
+public class SingleFlight<K, T> {
+
+    private final Map<K, Flight<T>> mInFlight = new HashMap<>();
+
+    private int mExecutionCount;
+    private int mCoalescedCount;
+
+    public Observable<T> execute(final K key, final Func0<Observable<T>> request) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                synchronized (mInFlight) {
+                    Flight<T> flight = mInFlight.get(key);
+                    if (flight != null) {
+                        mCoalescedCount++;
+                        return flight.mObservable;
+                    }
+                    mExecutionCount++;
+                    return start(key, request).mObservable;
+                }
+            }
+        });
+    }
+
+    public int getExecutionCount() {
+        synchronized (mInFlight) {
+            return mExecutionCount;
+        }
+    }
+
+    public int getCoalescedCount() {
+        synchronized (mInFlight) {
+            return mCoalescedCount;
+        }
+    }
+
+    private Flight<T> start(final K key, Func0<Observable<T>> request) {
+        final Flight<T> flight = new Flight<>();
+        flight.mObservable = request.call()
+                .doOnTerminate(new Action0() {
+                    @Override
+                    public void call() {
+                        finish(key, flight);
+                    }
+                })
+                // cache() replays to late joiners, so no subscriber can miss an emission that
+                // happened before it arrived.
+                .cache();
+        mInFlight.put(key, flight);
+        return flight;
+    }
+
+    private void finish(K key, Flight<T> flight) {
+        synchronized (mInFlight) {
+            if (mInFlight.get(key) == flight) {
+                mInFlight.remove(key);
+            }
+        }
+    }
+
+    private static class Flight<T> {
+        Observable<T> mObservable;
+    }
+}
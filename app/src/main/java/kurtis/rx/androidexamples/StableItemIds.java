@@ -0,0 +1,70 @@
+package kurtis.rx.androidexamples;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stable ids for a list of strings, as a RecyclerView adapter with stable ids needs them.
+ *
+ * A string keeps its id across updates, so rows can be matched up without comparing text at bind
+ * time. Repeated strings are told apart by how often they occurred before. Only the strings of
+ * the current list are remembered: a replaced list forgets the ids of strings it no longer has,
+ * and a string that comes back later gets a new id, never one another string had.
+ *
+ * Looking up an id is an array read, so binding a row allocates nothing.
+ */
+public class StableItemIds {
+
+    private Map<String, Long> mIds = new HashMap<>();
+    private final Map<String, Integer> mOccurrences = new HashMap<>();
+    private long[] mItemIds = new long[0];
+    private long mNextId;
+
+    /**
+     * Assigns the ids of {@code strings} from {@code from} on. With 0 the list was replaced;
+     * otherwise the rows before {@code from} are unchanged and keep their ids, e.g. after an append.
+     */
+    public void assign(List<String> strings, int from) {
+        Map<String, Long> previousIds = mIds;
+        if (from == 0) {
+            mIds = new HashMap<>();
+            mOccurrences.clear();
+        }
+        int size = strings.size();
+        long[] itemIds = mItemIds;
+        if (itemIds.length < size) {
+            itemIds = Arrays.copyOf(itemIds, Math.max(size, 2 * itemIds.length));
+        }
+        for (int i = from; i < size; i++) {
+            String string = strings.get(i);
+            Integer previous = mOccurrences.get(string);
+            int occurrence = previous == null ? 0 : previous + 1;
+            mOccurrences.put(string, occurrence);
+
+            String key = occurrence == 0 ? string : string + '\u0000' + occurrence;
+            Long id = previousIds.get(key);
+            if (id == null) {
+                id = mNextId++;
+            }
+            mIds.put(key, id);
+            itemIds[i] = id;
+        }
+        mItemIds = itemIds;
+    }
+
+    /**
+     * The id of the row at {@code position}, as assigned by the last {@link #assign(List, int)}.
+     */
+    public long get(int position) {
+        return mItemIds[position];
+    }
+
+    /**
+     * Strings, counting repeats separately, that currently have an id.
+     */
+    int size() {
+        return mIds.size();
+    }
+}
@@ -0,0 +1,99 @@
+package kurtis.rx.androidexamples;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A list of strings stored in one small binary file: a header, the number of strings and then
+ * each string in modified UTF-8, so reading it back is a single sequential read without parsing.
+ *
+ * A write goes to a temporary file of its own that replaces the old one only when complete, so a
+ * crash halfway leaves the previous list in place and writes racing each other never mix: the
+ * last one to finish wins. A file that is cut short or otherwise corrupt reads as no list.
+ */
+public class StringListFile {
+
+    private static final int MAGIC = 0x534c4631; // "SLF1"
+    private static final int HEADER_SIZE = 8;
+    /**
+     * Every string takes at least its 2 length bytes.
+     */
+    private static final int MIN_STRING_SIZE = 2;
+
+    private final File mFile;
+
+    public StringListFile(File file) {
+        mFile = file;
+    }
+
+    /**
+     * The stored list, or null if there is none or it can't be read.
+     */
+    public List<String> read() {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0 || count > (mFile.length() - HEADER_SIZE) / MIN_STRING_SIZE) {
+                return null;
+            }
+            List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                strings.add(in.readUTF());
+            }
+            return strings;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    public void write(List<String> strings) throws IOException {
+        File tempFile = File.createTempFile(mFile.getName(), ".tmp", mFile.getAbsoluteFile().getParentFile());
+        boolean replaced = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(strings.size());
+                for (String string : strings) {
+                    out.writeUTF(string);
+                }
+            } finally {
+                out.close();
+            }
+            replaced = tempFile.renameTo(mFile);
+        } finally {
+            if (!replaced) {
+                tempFile.delete();
+            }
+        }
+        if (!replaced) {
+            throw new IOException("Could not replace " + mFile);
+        }
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package kurtis.rx.androidexamples;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+
+/**
+ * Observable access to the TV show calls of {@link RestClient}.
+ *
+ * Requests are coalesced across every screen in the process: while a load is in flight, new
+ * subscribers join it instead of starting another 5 second call.
+ *
+ * Every call to the RestClient is retried with jittered backoff and guarded by a circuit breaker
+ * shared by all screens: once the backend keeps failing, calls fail right away instead of
+ * blocking a network thread for 5 seconds each, until a probe call gets through again.
+ */
+public class TvShowRepository {
+
+    /**
+     * Suggested name for the favorites file, shared by all screens since they show the same list.
+     */
+    public static final String FAVORITES_FILE_NAME = "favorite_tv_shows";
+
+    private static final String FAVORITES = "favorites";
+    private static final String FAVORITES_WITH_EXCEPTION = "favoritesWithException";
+    private static final String FAVORITES_STREAM = "favoritesStream:";
+
+    private static final SingleFlight<String, List<String>> sRequests = new SingleFlight<>();
+    private static final CircuitBreaker sBreaker =
+            new CircuitBreaker("tvShows", 3, 30, TimeUnit.SECONDS, NetworkScheduler.get());
+    // Retries are resubscribed on the network scheduler, where the blocking call belongs.
+    private static final RetryWithBackoff sRetry =
+            new RetryWithBackoff(2, 1, 8, TimeUnit.SECONDS, NetworkScheduler.get());
+
+    private final RestClient mRestClient;
+    private final StringListFile mFavoritesFile;
+
+    public TvShowRepository(RestClient restClient) {
+        this(restClient, null);
+    }
+
+    /**
+     * @param favoritesFile where the last loaded favorites are kept between launches, or null to
+     *                      always load them from the RestClient
+     */
+    public TvShowRepository(RestClient restClient, StringListFile favoritesFile) {
+        mRestClient = restClient;
+        mFavoritesFile = favoritesFile;
+    }
+
+    public static CircuitBreaker getCircuitBreaker() {
+        return sBreaker;
+    }
+
+    public static RetryWithBackoff getRetry() {
+        return sRetry;
+    }
+
+    /**
+     * Nothing runs until subscription; the blocking call happens on the subscribing thread of
+     * whichever subscriber starts the request.
+     */
+    public Observable<List<String>> getFavoriteTvShows() {
+        return sRequests.execute(FAVORITES, new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return resilient(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return mRestClient.getFavoriteTvShows();
+                    }
+                });
+            }
+        });
+    }
+
+    public Observable<List<String>> getFavoriteTvShowsWithException() {
+        return sRequests.execute(FAVORITES_WITH_EXCEPTION, new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return resilient(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        return mRestClient.getFavoriteTvShowsWithException();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Emits the favorite shows page by page as they arrive instead of all at once at the end.
+     *
+     * Pages are requested one after the other, the next one once the previous has arrived. Shared
+     * subscribers get them replayed only as fast as they request them, so a slow consumer is never
+     * flooded.
+     */
+    public Observable<List<String>> streamFavoriteTvShows(final int pageSize) {
+        return sRequests.execute(FAVORITES_STREAM + pageSize, new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return Observable.range(0, Integer.MAX_VALUE)
+                        .concatMap(new Func1<Integer, Observable<List<String>>>() {
+                            @Override
+                            public Observable<List<String>> call(final Integer page) {
+                                return resilient(new Callable<List<String>>() {
+                                    @Override
+                                    public List<String> call() {
+                                        return mRestClient.getFavoriteTvShowsPage(page * pageSize, pageSize);
+                                    }
+                                });
+                            }
+                        })
+                        .takeUntil(new Func1<List<String>, Boolean>() {
+                            @Override
+                            public Boolean call(List<String> page) {
+                                return page.size() < pageSize;
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Stale-while-revalidate version of {@link #getFavoriteTvShows()}: emits the favorites stored
+     * by the last successful load right away, then loads them again and emits the fresh list only
+     * if it differs. Without a stored list it is just the load.
+     */
+    public Observable<List<String>> getFavoriteTvShowsCached() {
+        return staleWhileRevalidate(getFavoriteTvShows());
+    }
+
+    /**
+     * Stale-while-revalidate version of {@link #streamFavoriteTvShows(int)}. Every emission is the
+     * whole list so far: the stored list, if any, followed by the fresh one if it differs, or else
+     * the growing list as its pages arrive. Each is a list of its own, since an emission may be
+     * replayed to a later subscriber or still be on screen when the next arrives; what it costs is
+     * copying references, not strings. A screen can show a grown list by appending its new rows.
+     */
+    public Observable<List<String>> streamFavoriteTvShowsCached(int pageSize) {
+        return staleWhileRevalidate(streamFavoriteTvShows(pageSize)
+                .scan(new Func2<List<String>, List<String>, List<String>>() {
+                    @Override
+                    public List<String> call(List<String> tvShows, List<String> page) {
+                        List<String> more = new ArrayList<>(tvShows.size() + page.size());
+                        more.addAll(tvShows);
+                        more.addAll(page);
+                        return more;
+                    }
+                }));
+    }
+
+    /**
+     * The stored list is read on the subscribing thread. Once it has been emitted, a failed
+     * refresh just leaves it on screen instead of ending in an error.
+     */
+    private Observable<List<String>> staleWhileRevalidate(final Observable<List<String>> load) {
+        if (mFavoritesFile == null) {
+            return load;
+        }
+        return Observable.defer(new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                final List<String> stored = mFavoritesFile.read();
+                if (stored == null) {
+                    return storeLast(load);
+                }
+                return getFavoriteTvShows()
+                        .filter(new Func1<List<String>, Boolean>() {
+                            @Override
+                            public Boolean call(List<String> tvShows) {
+                                return !tvShows.equals(stored);
+                            }
+                        })
+                        .doOnNext(new Action1<List<String>>() {
+                            @Override
+                            public void call(List<String> tvShows) {
+                                store(tvShows);
+                            }
+                        })
+                        .onErrorResumeNext(Observable.<List<String>>empty())
+                        .startWith(stored);
+            }
+        });
+    }
+
+    /**
+     * A page is retried on its own, so a failure half way through a stream doesn't reload the
+     * pages already emitted.
+     */
+    private static Observable<List<String>> resilient(Callable<List<String>> call) {
+        return Observable.fromCallable(call)
+                .compose(sBreaker.<List<String>>protect())
+                .retryWhen(sRetry);
+    }
+
+    private Observable<List<String>> storeLast(Observable<List<String>> load) {
+        final AtomicReference<List<String>> last = new AtomicReference<>();
+        return load
+                .doOnNext(new Action1<List<String>>() {
+                    @Override
+                    public void call(List<String> tvShows) {
+                        last.set(tvShows);
+                    }
+                })
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        if (last.get() != null) {
+                            store(last.get());
+                        }
+                    }
+                });
+    }
+
+    private void store(List<String> tvShows) {
+        try {
+            mFavoritesFile.write(tvShows);
+        } catch (IOException ignored) {
+            // The file only saves the next launch a load; this one already has its data.
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package kurtis.rx.androidexamples;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action1;
+
+/**
+ * Creates a RecyclerView's first rows before it needs them, off the main thread.
+ *
+ * Without it, the frame that first shows a list also inflates every row view that fits on
+ * screen. {@link #warmUp} has the adapter create that many view holders on a background
+ * scheduler, typically while the data is still loading, and puts them into the RecyclerView's
+ * pool on the main thread, where the first layout takes them instead of inflating.
+ *
+ * The adapter's onCreateViewHolder must be safe to run on a background thread, i.e. only
+ * inflate and set up its views. The RecyclerView needs its LayoutManager before warming up,
+ * since the rows get their layout params from it.
+ */
+public final class ViewHolderWarmUp {
+
+    private ViewHolderWarmUp() {
+    }
+
+    /**
+     * Creates {@code count} holders of {@code viewType} on {@code scheduler}. Must be called on
+     * the main thread; unsubscribing drops holders that have not reached the pool yet.
+     */
+    public static Subscription warmUp(final RecyclerView recyclerView, final RecyclerView.Adapter<?> adapter,
+                                      final int viewType, final int count, Scheduler scheduler) {
+        final RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        // The pool keeps 5 holders per type by default, the rest would be dropped.
+        pool.setMaxRecycledViews(viewType, Math.max(5, count));
+        return Observable
+                .fromCallable(new Callable<List<RecyclerView.ViewHolder>>() {
+                    @Override
+                    public List<RecyclerView.ViewHolder> call() {
+                        List<RecyclerView.ViewHolder> holders = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            holders.add(adapter.createViewHolder(recyclerView, viewType));
+                        }
+                        return holders;
+                    }
+                })
+                .subscribeOn(scheduler)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Action1<List<RecyclerView.ViewHolder>>() {
+                    @Override
+                    public void call(List<RecyclerView.ViewHolder> holders) {
+                        for (RecyclerView.ViewHolder holder : holders) {
+                            pool.putRecycledView(holder);
+                        }
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable throwable) {
+                        // Nothing lost: the rows are inflated on the main thread as usual.
+                    }
+                });
+    }
+}
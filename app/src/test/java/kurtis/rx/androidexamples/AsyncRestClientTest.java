@@ -0,0 +1,145 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AsyncRestClientTest {
+
+    private static final List<String> TV_SHOWS = Arrays.asList("Archer", "Futurama");
+
+    private final TestScheduler mScheduler = new TestScheduler();
+
+    @Test
+    public void fixedLatencyEmitsOnlyOnceTheDelayIsOver() {
+        assertEmitsAfterDrawnDelay(SimulatedLatency.fixed(300));
+    }
+
+    @Test
+    public void uniformLatencyEmitsOnlyOnceTheDrawnDelayIsOver() {
+        for (int i = 0; i < 20; i++) {
+            assertEmitsAfterDrawnDelay(SimulatedLatency.uniform(50, 500));
+        }
+    }
+
+    @Test
+    public void longTailLatencyEmitsOnlyOnceTheDrawnDelayIsOver() {
+        for (int i = 0; i < 20; i++) {
+            assertEmitsAfterDrawnDelay(SimulatedLatency.longTail(100, 2000));
+        }
+    }
+
+    @Test
+    public void everySubscriptionDrawsItsOwnDelay() {
+        RecordingLatency latency = new RecordingLatency(SimulatedLatency.uniform(0, 1000000));
+        AsyncRestClient client = client(latency, latency);
+
+        client.getFavoriteTvShows().subscribe(new TestSubscriber<List<String>>());
+        client.getFavoriteTvShows().subscribe(new TestSubscriber<List<String>>());
+
+        assertEquals(2, latency.mDelays.size());
+    }
+
+    /**
+     * Subscribing returns at once and the results are emitted by the scheduler's timers on the
+     * thread advancing it, so thousands of calls wait without a thread each.
+     */
+    @Test
+    public void waitingCallsHoldNoThread() {
+        AsyncRestClient client = client(SimulatedLatency.fixed(1000), SimulatedLatency.fixed(1000));
+        List<TestSubscriber<List<String>>> subscribers = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+            client.searchForCity("Bo").subscribe(subscriber);
+            subscriber.assertNoValues();
+            subscribers.add(subscriber);
+        }
+        mScheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+        for (TestSubscriber<List<String>> subscriber : subscribers) {
+            subscriber.assertValue(Arrays.asList("Boston", "Boise"));
+            assertSame(Thread.currentThread(), subscriber.getLastSeenThread());
+        }
+    }
+
+    @Test
+    public void unsubscribingCancelsTheCall() {
+        AsyncRestClient client = client(SimulatedLatency.fixed(1000), SimulatedLatency.fixed(1000));
+        TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+
+        client.getFavoriteTvShows().subscribe(subscriber).unsubscribe();
+        mScheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoValues();
+        subscriber.assertNoTerminalEvent();
+    }
+
+    @Test
+    public void failingCallErrorsAfterTheDelay() {
+        AsyncRestClient client = client(SimulatedLatency.fixed(1000), SimulatedLatency.fixed(1000));
+        TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+
+        client.getFavoriteTvShowsWithException().subscribe(subscriber);
+        mScheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        subscriber.assertNoTerminalEvent();
+        mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        subscriber.assertError(RuntimeException.class);
+    }
+
+    private void assertEmitsAfterDrawnDelay(SimulatedLatency latency) {
+        RecordingLatency recording = new RecordingLatency(latency);
+        AsyncRestClient client = client(recording, recording);
+
+        assertEmitsAfterDrawnDelay(client.getFavoriteTvShows(), recording, TV_SHOWS);
+        assertEmitsAfterDrawnDelay(client.searchForCity("Bo"), recording, Arrays.asList("Boston", "Boise"));
+    }
+
+    private void assertEmitsAfterDrawnDelay(
+            Observable<List<String>> call, RecordingLatency latency, List<String> expected) {
+        TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+        long start = mScheduler.now();
+
+        call.subscribe(subscriber);
+        long delay = latency.mDelays.get(latency.mDelays.size() - 1);
+        mScheduler.advanceTimeTo(start + delay - 1, TimeUnit.MILLISECONDS);
+        subscriber.assertNoValues();
+        mScheduler.advanceTimeTo(start + delay, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(expected);
+        subscriber.assertCompleted();
+    }
+
+    private AsyncRestClient client(SimulatedLatency tvShowLatency, SimulatedLatency searchLatency) {
+        return new AsyncRestClient(new CityPrefixIndex(new String[]{"Boston", "Austin", "Boise"}),
+                TV_SHOWS, tvShowLatency, searchLatency, mScheduler);
+    }
+
+    private static final class RecordingLatency extends SimulatedLatency {
+
+        private final SimulatedLatency mLatency;
+        private final List<Long> mDelays = new ArrayList<>();
+
+        RecordingLatency(SimulatedLatency latency) {
+            mLatency = latency;
+        }
+
+        @Override
+        public long nextDelayMillis() {
+            long delay = mLatency.nextDelayMillis();
+            mDelays.add(delay);
+            return delay;
+        }
+    }
+}
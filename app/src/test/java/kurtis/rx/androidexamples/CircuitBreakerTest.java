@@ -0,0 +1,187 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+public class CircuitBreakerTest {
+
+    private final TestScheduler mClock = new TestScheduler();
+    private final CircuitBreaker mBreaker = new CircuitBreaker("test", 2, 30, TimeUnit.SECONDS, mClock);
+
+    @Test
+    public void opensAfterThresholdFailuresInARow() {
+        fail();
+        call(Observable.just("ok"));
+        fail();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+
+        fail();
+
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        assertEquals(1, mBreaker.getOpenedCount());
+    }
+
+    @Test
+    public void openBreakerRejectsWithoutSubscribing() {
+        trip();
+        final AtomicInteger subscriptions = new AtomicInteger();
+        Observable<String> call = Observable.just("ok").doOnSubscribe(new Action0() {
+            @Override
+            public void call() {
+                subscriptions.incrementAndGet();
+            }
+        });
+
+        mClock.advanceTimeBy(29, TimeUnit.SECONDS);
+        call(call).assertError(CircuitBreaker.OpenException.class);
+
+        assertEquals(0, subscriptions.get());
+        assertEquals(1, mBreaker.getRejectedCount());
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+    }
+
+    @Test
+    public void successfulProbeCloses() {
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        call(Observable.just("ok")).assertValue("ok");
+
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        assertEquals(1, mBreaker.getClosedCount());
+        call(Observable.just("ok")).assertValue("ok");
+    }
+
+    @Test
+    public void failedProbeOpensAgainForAnotherPeriod() {
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        fail();
+
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        assertEquals(2, mBreaker.getOpenedCount());
+        mClock.advanceTimeBy(29, TimeUnit.SECONDS);
+        call(Observable.just("ok")).assertError(CircuitBreaker.OpenException.class);
+        mClock.advanceTimeBy(1, TimeUnit.SECONDS);
+        call(Observable.just("ok")).assertValue("ok");
+    }
+
+    @Test
+    public void onlyOneProbeAtATime() {
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+        PublishSubject<String> probe = PublishSubject.create();
+        TestSubscriber<String> probing = call(probe);
+
+        call(Observable.just("ok")).assertError(CircuitBreaker.OpenException.class);
+        probe.onNext("ok");
+        probe.onCompleted();
+
+        probing.assertValue("ok");
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        call(Observable.just("ok")).assertValue("ok");
+    }
+
+    @Test
+    public void unsubscribedProbeLetsAnotherOneThrough() {
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+        Subscription probe = call(PublishSubject.<String>create());
+
+        probe.unsubscribe();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState());
+        call(Observable.just("ok")).assertValue("ok");
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+    @Test
+    public void rejectionsOfAnInnerBreakerAreNotFailures() {
+        CircuitBreaker inner = new CircuitBreaker("inner", 1, 30, TimeUnit.SECONDS, mClock);
+        call(Observable.<String>error(new IllegalStateException("Backend down")).compose(inner.<String>protect()));
+        for (int i = 0; i < 5; i++) {
+            call(Observable.just("ok").compose(inner.<String>protect()))
+                    .assertError(CircuitBreaker.OpenException.class);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, inner.getState());
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+    @Test
+    public void listenerSeesEveryTransition() {
+        final List<String> transitions = new ArrayList<>();
+        mBreaker.setListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChanged(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+                transitions.add(from + "->" + to);
+            }
+        });
+
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+        fail();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+        call(Observable.just("ok"));
+
+        assertEquals(Arrays.asList("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN",
+                "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    public void cancelledCallsAreNotFailures() {
+        for (int i = 0; i < 5; i++) {
+            call(Observable.<String>error(cancelled())).assertError(CancelledException.class);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        assertEquals(0, mBreaker.getFailureLatency().getCount());
+    }
+
+    @Test
+    public void cancelledProbeLetsAnotherOneThrough() {
+        trip();
+        mClock.advanceTimeBy(30, TimeUnit.SECONDS);
+
+        call(Observable.<String>error(cancelled())).assertError(CancelledException.class);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState());
+        call(Observable.just("ok")).assertValue("ok");
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+    private void trip() {
+        fail();
+        fail();
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+    }
+
+    private void fail() {
+        call(Observable.<String>error(new IllegalStateException("Backend down")));
+    }
+
+    private TestSubscriber<String> call(Observable<String> call) {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        call.compose(mBreaker.<String>protect()).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static CancelledException cancelled() {
+        return new CancelledException("Call cancelled", new InterruptedException());
+    }
+}
@@ -0,0 +1,152 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import rx.functions.Func1;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Every prefix search of the app gives what a linear scan gives, for every prefix of every name
+ * in both cases, whatever the default locale.
+ */
+public class CityIndexTest {
+
+    private static final String[] NAMES = {
+            "Istanbul", "İzmir", "Irvine", "ısparta", "Iowa City", "indianapolis",
+            "São Paulo", "Zürich", "ZURICH", "Ängelholm", "Ørsted",
+            "Springfield", "Springfield", "San Francisco", "San Jose", "Sandy", "St. Louis",
+    };
+
+    private final Locale mDefaultLocale = Locale.getDefault();
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void indexesMatchLinearScan() throws IOException {
+        assertAllMatchLinearScan(cities());
+    }
+
+    @Test
+    public void indexesMatchLinearScanInTurkish() throws IOException {
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        assertAllMatchLinearScan(cities());
+    }
+
+    @Test
+    public void indexBuiltInOneLocaleIsSearchedTheSameInAnother() throws IOException {
+        String[] cities = cities();
+        Locale.setDefault(Locale.US);
+        MappedCityIndex compiled = map(cities);
+
+        Locale.setDefault(new Locale("tr", "TR"));
+        CityPrefixIndex fallback = new CityPrefixIndex(cities);
+        for (String query : queries(cities)) {
+            assertEquals(query, fallback.findByPrefix(query), compiled.findByPrefix(query));
+        }
+    }
+
+    @Test
+    public void emptyPrefixMatchesNothing() throws IOException {
+        assertEquals(0, new CityPrefixIndex(NAMES).findByPrefix("").size());
+        assertEquals(0, map(NAMES).findByPrefix("").size());
+    }
+
+    @Test
+    public void getReturnsCitiesInListOrder() throws IOException {
+        MappedCityIndex mapped = map(NAMES);
+        CityPrefixIndex index = new CityPrefixIndex(NAMES);
+        for (int i = 0; i < NAMES.length; i++) {
+            assertEquals(NAMES[i], index.get(i));
+            assertEquals(NAMES[i], mapped.get(i));
+        }
+    }
+
+    private static void assertAllMatchLinearScan(String[] cities) throws IOException {
+        CityPrefixIndex index = new CityPrefixIndex(cities);
+        MappedCityIndex mapped = map(cities);
+        final CityPrefixIndex backend = new CityPrefixIndex(cities);
+        RefiningCitySearch refining = new RefiningCitySearch(new Func1<String, List<String>>() {
+            @Override
+            public List<String> call(String query) {
+                return backend.findByPrefix(query);
+            }
+        });
+        for (String query : queries(cities)) {
+            List<String> expected = linearScan(cities, query);
+            assertEquals(query, expected, index.findByPrefix(query));
+            assertEquals(query, expected, mapped.findByPrefix(query));
+            // Typed one letter at a time, so most of these are refined locally.
+            assertEquals(query, expected, refining.call(query));
+        }
+    }
+
+    /**
+     * The matching RestClient.getMatchingCities originally did.
+     */
+    private static List<String> linearScan(String[] cities, String query) {
+        List<String> matches = new ArrayList<>();
+        if (query.isEmpty()) {
+            return matches;
+        }
+        for (String city : cities) {
+            if (CityKeys.of(city).startsWith(CityKeys.of(query))) {
+                matches.add(city);
+            }
+        }
+        return matches;
+    }
+
+    private static String[] cities() {
+        List<String> cities = new ArrayList<>(Arrays.asList(NAMES));
+        Random random = new Random(17);
+        String[] parts = {"ber", "Lin", "ton", "Ist", "ia", "é", "Ham", "burg", "new ", "I"};
+        for (int i = 0; i < 400; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int part = 1 + random.nextInt(4); part > 0; part--) {
+                name.append(parts[random.nextInt(parts.length)]);
+            }
+            cities.add(name.toString());
+        }
+        return cities.toArray(new String[cities.size()]);
+    }
+
+    /**
+     * Every prefix of every name, as typed and upper-cased, in the order they would be typed.
+     */
+    private static Set<String> queries(String[] cities) {
+        Set<String> queries = new LinkedHashSet<>();
+        for (String city : cities) {
+            for (int length = 1; length <= city.length(); length++) {
+                queries.add(city.substring(0, length));
+            }
+            for (int length = 1; length <= city.length(); length++) {
+                queries.add(city.substring(0, length).toUpperCase(Locale.ROOT));
+            }
+        }
+        queries.add("xyz");
+        return queries;
+    }
+
+    private static MappedCityIndex map(String[] cities) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MappedCityIndex.write(cities, out);
+        return new MappedCityIndex(ByteBuffer.wrap(out.toByteArray()));
+    }
+}
@@ -0,0 +1,184 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CitySearchPipelineTest {
+
+    private final TestScheduler mDebounceScheduler = new TestScheduler();
+    private final PublishSubject<String> mQueries = PublishSubject.create();
+    private final List<List<String>> mResults = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void newerQueryInterruptsRunningSearch() throws InterruptedException {
+        final CountDownLatch staleStarted = new CountDownLatch(1);
+        final CountDownLatch staleInterrupted = new CountDownLatch(1);
+        final CountDownLatch latestDone = new CountDownLatch(1);
+        Subscription subscription = pipeline(new Func1<String, List<String>>() {
+            @Override
+            public List<String> call(String query) {
+                if (query.equals("sa")) {
+                    staleStarted.countDown();
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        staleInterrupted.countDown();
+                        throw new CancelledException("Search cancelled", e);
+                    }
+                }
+                latestDone.countDown();
+                return Collections.singletonList(query);
+            }
+        });
+
+        mQueries.onNext("sa");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+        assertTrue(staleStarted.await(5, TimeUnit.SECONDS));
+        mQueries.onNext("sab");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+
+        assertTrue(staleInterrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(latestDone.await(5, TimeUnit.SECONDS));
+        awaitResults(1);
+        assertEquals(Collections.singletonList(Collections.singletonList("sab")), mResults);
+        subscription.unsubscribe();
+    }
+
+    @Test
+    public void onlyTheLastQueryOfABurstIsSearched() throws InterruptedException {
+        final List<String> searched = new CopyOnWriteArrayList<>();
+        Subscription subscription = pipeline(new Func1<String, List<String>>() {
+            @Override
+            public List<String> call(String query) {
+                searched.add(query);
+                return Collections.singletonList(query);
+            }
+        });
+
+        mQueries.onNext("b");
+        mDebounceScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        mQueries.onNext("bo");
+        mDebounceScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        mQueries.onNext("bos");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+
+        awaitResults(1);
+        assertEquals(Collections.singletonList("bos"), searched);
+        subscription.unsubscribe();
+    }
+
+    @Test
+    public void failedSearchDoesNotEndTheStream() throws InterruptedException {
+        final List<String> failed = new CopyOnWriteArrayList<>();
+        final CountDownLatch failedOnce = new CountDownLatch(1);
+        Subscription subscription = new CitySearchPipeline(CitySearchPipeline.Mode.THREE_HOP,
+                new Func1<String, List<String>>() {
+                    @Override
+                    public List<String> call(String query) {
+                        if (query.equals("x")) {
+                            throw new IllegalStateException("Backend down");
+                        }
+                        return Collections.singletonList(query);
+                    }
+                },
+                new Action2<String, Throwable>() {
+                    @Override
+                    public void call(String query, Throwable throwable) {
+                        failed.add(query);
+                        failedOnce.countDown();
+                    }
+                },
+                400, mDebounceScheduler, Schedulers.io(), Schedulers.immediate())
+                .results(mQueries)
+                .subscribe(collectResults());
+
+        mQueries.onNext("x");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+        assertTrue(failedOnce.await(5, TimeUnit.SECONDS));
+        mQueries.onNext("y");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+
+        awaitResults(1);
+        assertEquals(Collections.singletonList("x"), failed);
+        assertEquals(Collections.singletonList(Collections.singletonList("y")), mResults);
+        subscription.unsubscribe();
+    }
+
+    @Test
+    public void cancelledSearchIsNotReported() throws InterruptedException {
+        final List<String> failed = new CopyOnWriteArrayList<>();
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        Subscription subscription = new CitySearchPipeline(CitySearchPipeline.Mode.THREE_HOP,
+                new Func1<String, List<String>>() {
+                    @Override
+                    public List<String> call(String query) {
+                        cancelled.countDown();
+                        throw new CancelledException("Search cancelled", new InterruptedException());
+                    }
+                },
+                new Action2<String, Throwable>() {
+                    @Override
+                    public void call(String query, Throwable throwable) {
+                        failed.add(query);
+                    }
+                },
+                400, mDebounceScheduler, Schedulers.io(), Schedulers.immediate())
+                .results(mQueries)
+                .subscribe(collectResults());
+
+        mQueries.onNext("sa");
+        mDebounceScheduler.advanceTimeBy(400, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+
+        awaitResults(0);
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(Collections.emptyList(), mResults);
+        subscription.unsubscribe();
+    }
+
+    private Subscription pipeline(Func1<String, List<String>> search) {
+        return new CitySearchPipeline(CitySearchPipeline.Mode.THREE_HOP, search,
+                new Action2<String, Throwable>() {
+                    @Override
+                    public void call(String query, Throwable throwable) {
+                    }
+                },
+                400, mDebounceScheduler, Schedulers.io(), Schedulers.immediate())
+                .results(mQueries)
+                .subscribe(collectResults());
+    }
+
+    private Action1<List<String>> collectResults() {
+        return new Action1<List<String>>() {
+            @Override
+            public void call(List<String> cities) {
+                mResults.add(cities);
+            }
+        };
+    }
+
+    private void awaitResults(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mResults.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Anything stale would have arrived by now as well.
+        Thread.sleep(100);
+    }
+}
@@ -0,0 +1,214 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyCityIndexTest {
+
+    private static final String[] NAMES = {
+            "San Francisco", "San Jose", "Santa Fe", "Sandy", "Salem", "Springfield", "Springfield",
+            "St. Louis", "Boston", "Bozeman", "Austin", "Denver", "Dover", "İzmir", "Istanbul",
+    };
+
+    @Test
+    public void typosStillFindTheCity() {
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(NAMES));
+
+        assertEquals("San Francisco", first(index, "Sna Fr"));
+        assertEquals("San Francisco", first(index, "san frnacisco"));
+        assertEquals("Springfield", first(index, "Sprnig"));
+        assertEquals("Boston", first(index, "Bostn"));
+        assertEquals("St. Louis", first(index, "ST. LUOIS"));
+    }
+
+    @Test
+    public void shortQueriesMustMatchExactly() {
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(NAMES));
+
+        assertEquals(Arrays.asList("Boston", "Bozeman"), find(index, "Bo", 20));
+        assertEquals(new ArrayList<String>(), find(index, "Bx", 20));
+    }
+
+    @Test
+    public void matchesBruteForceSearch() {
+        String[] cities = cities();
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(cities));
+
+        for (String query : queries(cities)) {
+            if (!isLossless(query)) {
+                continue;
+            }
+            List<String> all = bruteForce(cities, query, cities.length);
+            assertEquals(query, all, find(index, query, cities.length));
+            // With fewer results wanted, ties at the last distance taken may be broken otherwise.
+            for (int maxResults : new int[]{1, 3, 20}) {
+                List<String> found = find(index, query, maxResults);
+                assertEquals(query + " (" + maxResults + ")",
+                        distances(query, bruteForce(cities, query, maxResults)), distances(query, found));
+                assertTrue(query + " (" + maxResults + ")", isInOrderOf(all, found));
+            }
+        }
+    }
+
+    @Test
+    public void emptyQueryOrNoResultsWantedFindNothing() {
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(NAMES));
+
+        assertTrue(find(index, "", 20).isEmpty());
+        assertTrue(find(index, "Boston", 0).isEmpty());
+    }
+
+    @Test
+    public void searchTellsWhetherTheBudgetRanOut() {
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(NAMES));
+
+        FuzzyCityIndex.Matches done = index.search("Bostn", 20, 1, TimeUnit.MINUTES);
+        assertEquals(Arrays.asList("Boston"), done.mCities);
+        assertFalse(done.mTruncated);
+
+        FuzzyCityIndex.Matches cut = index.search("Bostn", 20, -1, TimeUnit.MILLISECONDS);
+        assertTrue(cut.mCities.isEmpty());
+        assertTrue(cut.mTruncated);
+    }
+
+    @Test
+    public void prefixDistanceCountsASwapAsOneEdit() {
+        assertEquals(0, FuzzyCityIndex.prefixDistance("bos", "boston", 2));
+        assertEquals(1, FuzzyCityIndex.prefixDistance("bsoton", "boston", 2));
+        assertEquals(1, FuzzyCityIndex.prefixDistance("bostn", "boston", 2));
+        assertEquals(2, FuzzyCityIndex.prefixDistance("bxstn", "boston", 2));
+        assertEquals(3, FuzzyCityIndex.prefixDistance("xxxxx", "boston", 2));
+    }
+
+    @Test
+    public void matchesStartAtTheBeginningOfTheName() {
+        FuzzyCityIndex index = new FuzzyCityIndex(new CityPrefixIndex(new String[]{"Bosan", "Sandy"}));
+
+        assertEquals(2, FuzzyCityIndex.prefixDistance("san", "bosan", 1));
+        assertEquals(Arrays.asList("Sandy"), find(index, "Sand", 20));
+    }
+
+    /**
+     * Whether a query keeps at least one trigram however its allowed edits are placed: it has one
+     * trigram per character, and each edit can break four.
+     */
+    private static boolean isLossless(String query) {
+        int length = query.length();
+        return length - 4 * (length <= 3 ? 0 : length <= 6 ? 1 : 2) >= 1;
+    }
+
+    /**
+     * Every city's distance checked one by one, with the same rules: no edits up to 3 characters,
+     * one up to 6, two beyond; closest first, then in list order.
+     */
+    private static List<String> bruteForce(String[] cities, String query, int maxResults) {
+        String key = CityKeys.of(query);
+        int maxDistance = key.length() <= 3 ? 0 : key.length() <= 6 ? 1 : 2;
+        List<String> matches = new ArrayList<>();
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            for (String city : cities) {
+                if (matches.size() < maxResults
+                        && FuzzyCityIndex.prefixDistance(key, CityKeys.of(city), maxDistance) == distance) {
+                    matches.add(city);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static List<Integer> distances(String query, List<String> cities) {
+        List<Integer> distances = new ArrayList<>();
+        for (String city : cities) {
+            distances.add(FuzzyCityIndex.prefixDistance(CityKeys.of(query), CityKeys.of(city), 2));
+        }
+        return distances;
+    }
+
+    /**
+     * Whether {@code some} are taken from {@code all} in the same order, e.g. [b, d] of [a, b, c, d].
+     */
+    private static boolean isInOrderOf(List<String> all, List<String> some) {
+        int from = 0;
+        for (String city : some) {
+            int at = all.subList(from, all.size()).indexOf(city);
+            if (at < 0) {
+                return false;
+            }
+            from += at + 1;
+        }
+        return true;
+    }
+
+    private static String[] cities() {
+        List<String> cities = new ArrayList<>(Arrays.asList(NAMES));
+        Random random = new Random(18);
+        String[] parts = {"san", " ", "ta", "fe", "Bo", "ston", "ber", "lin", "Spring", "field", "ia", "é"};
+        for (int i = 0; i < 300; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int part = 1 + random.nextInt(4); part > 0; part--) {
+                name.append(parts[random.nextInt(parts.length)]);
+            }
+            cities.add(name.toString());
+        }
+        return cities.toArray(new String[cities.size()]);
+    }
+
+    /**
+     * Prefixes of the names with one or two random edits.
+     */
+    private static Set<String> queries(String[] cities) {
+        Random random = new Random(81);
+        Set<String> queries = new LinkedHashSet<>();
+        for (String city : cities) {
+            String prefix = city.substring(0, 1 + random.nextInt(city.length()));
+            queries.add(prefix);
+            queries.add(edit(prefix, random));
+            queries.add(edit(edit(prefix, random), random));
+        }
+        return queries;
+    }
+
+    private static String edit(String query, Random random) {
+        StringBuilder edited = new StringBuilder(query);
+        int at = random.nextInt(query.length());
+        switch (random.nextInt(4)) {
+            case 0:
+                edited.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                break;
+            case 1:
+                edited.insert(at, (char) ('a' + random.nextInt(26)));
+                break;
+            case 2:
+                if (query.length() > 1) {
+                    edited.deleteCharAt(at);
+                }
+                break;
+            default:
+                if (at + 1 < query.length()) {
+                    edited.setCharAt(at, query.charAt(at + 1));
+                    edited.setCharAt(at + 1, query.charAt(at));
+                }
+        }
+        return edited.toString();
+    }
+
+    private static List<String> find(FuzzyCityIndex index, String query, int maxResults) {
+        return index.findSimilar(query, maxResults, 1, TimeUnit.MINUTES);
+    }
+
+    private static String first(FuzzyCityIndex index, String query) {
+        List<String> matches = find(index, query, 1);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+}
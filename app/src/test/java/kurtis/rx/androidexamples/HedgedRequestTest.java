@@ -0,0 +1,177 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedRequestTest {
+
+    private final TestScheduler mTimer = new TestScheduler();
+    private final AtomicInteger mCalls = new AtomicInteger();
+
+    @Test
+    public void nothingIsHedgedUntilEnoughLatenciesAreKnown() {
+        HedgedRequest hedge = new HedgedRequest(95, 20, 5, mTimer);
+        observeLatencies(hedge, 4, 1);
+
+        hedge.execute(calls(PublishSubject.<String>create())).subscribe(new TestSubscriber<String>());
+        mTimer.advanceTimeBy(1, TimeUnit.HOURS);
+
+        assertEquals(-1, hedge.getHedgeDelay(TimeUnit.NANOSECONDS));
+        assertEquals(1, mCalls.get());
+        assertEquals(0, hedge.getHedgeCount());
+    }
+
+    @Test
+    public void hedgeDelayIsThePercentileOfRecentLatencies() {
+        HedgedRequest p95 = new HedgedRequest(95, 20, 5, mTimer);
+        HedgedRequest p100 = new HedgedRequest(100, 20, 5, mTimer);
+        for (HedgedRequest hedge : new HedgedRequest[]{p95, p100}) {
+            observeLatencies(hedge, 19, 5);
+            observeLatencies(hedge, 1, 200);
+        }
+
+        // One slow call in twenty is above the 95th percentile, but is the 100th.
+        long p95Millis = p95.getHedgeDelay(TimeUnit.MILLISECONDS);
+        assertTrue(String.valueOf(p95Millis), p95Millis >= 5 && p95Millis < 100);
+        assertTrue(p100.getHedgeDelay(TimeUnit.MILLISECONDS) >= 200);
+    }
+
+    @Test
+    public void slowCallIsHedgedAtTheDelayAndTheFasterAnswerWins() {
+        HedgedRequest hedge = new HedgedRequest(95, 20, 5, mTimer);
+        observeLatencies(hedge, 5, 5);
+        long delayNanos = hedge.getHedgeDelay(TimeUnit.NANOSECONDS);
+        mCalls.set(0);
+        final AtomicBoolean firstUnsubscribed = new AtomicBoolean();
+        PublishSubject<String> first = PublishSubject.create();
+        PublishSubject<String> second = PublishSubject.create();
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        hedge.execute(calls(first.doOnUnsubscribe(new Action0() {
+            @Override
+            public void call() {
+                firstUnsubscribed.set(true);
+            }
+        }), second)).subscribe(subscriber);
+        mTimer.advanceTimeBy(delayNanos - 1, TimeUnit.NANOSECONDS);
+        assertEquals(1, mCalls.get());
+        mTimer.advanceTimeBy(1, TimeUnit.NANOSECONDS);
+        assertEquals(2, mCalls.get());
+        second.onNext("Boston");
+        second.onCompleted();
+
+        subscriber.assertValue("Boston");
+        assertTrue(firstUnsubscribed.get());
+        assertEquals(1, hedge.getHedgeCount());
+        assertEquals(1, hedge.getHedgeWinCount());
+    }
+
+    @Test
+    public void answerBeforeTheDelayCancelsTheHedge() {
+        HedgedRequest hedge = new HedgedRequest(95, 20, 5, mTimer);
+        observeLatencies(hedge, 5, 5);
+        mCalls.set(0);
+        PublishSubject<String> first = PublishSubject.create();
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        hedge.execute(calls(first)).subscribe(subscriber);
+        first.onNext("Boston");
+        first.onCompleted();
+        mTimer.advanceTimeBy(1, TimeUnit.HOURS);
+
+        subscriber.assertValue("Boston");
+        assertEquals(1, mCalls.get());
+        assertEquals(0, hedge.getHedgeCount());
+        assertEquals(0, hedge.getHedgeRate(), 0);
+    }
+
+    @Test
+    public void interruptedBlockingCallIsCancelled() throws InterruptedException {
+        HedgedRequest hedge = new HedgedRequest(95, 20, 5, mTimer);
+        final AtomicBoolean unsubscribed = new AtomicBoolean();
+        final Observable<String> never = PublishSubject.<String>create().doOnUnsubscribe(new Action0() {
+            @Override
+            public void call() {
+                unsubscribed.set(true);
+            }
+        });
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    hedge.executeBlocking(new Func0<Observable<String>>() {
+                        @Override
+                        public Observable<String> call() {
+                            return never;
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    error.set(e);
+                }
+                done.countDown();
+            }
+        });
+
+        waiting.start();
+        Thread.sleep(50);
+        waiting.interrupt();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof CancelledException);
+        assertTrue(unsubscribed.get());
+    }
+
+    /**
+     * Answers {@code count} requests, each after {@code millis}.
+     */
+    private static void observeLatencies(HedgedRequest hedge, int count, final long millis) {
+        for (int i = 0; i < count; i++) {
+            hedge.execute(new Func0<Observable<String>>() {
+                @Override
+                public Observable<String> call() {
+                    return Observable.fromCallable(new Callable<String>() {
+                        @Override
+                        public String call() throws InterruptedException {
+                            Thread.sleep(millis);
+                            return "Boston";
+                        }
+                    });
+                }
+            }).subscribe(new TestSubscriber<String>());
+        }
+    }
+
+    /**
+     * The first call gets {@code first}, a hedge gets {@code hedge}.
+     */
+    private Func0<Observable<String>> calls(final Observable<String> first, final Observable<String> hedge) {
+        return new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                return mCalls.incrementAndGet() == 1 ? first : hedge;
+            }
+        };
+    }
+
+    private Func0<Observable<String>> calls(Observable<String> call) {
+        return calls(call, call);
+    }
+}
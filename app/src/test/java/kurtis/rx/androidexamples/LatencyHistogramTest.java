@@ -0,0 +1,113 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = record(0, 1, 2, 3);
+
+        assertEquals(0, histogram.getPercentile(25, TimeUnit.NANOSECONDS));
+        assertEquals(1, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+        assertEquals(2, histogram.getPercentile(75, TimeUnit.NANOSECONDS));
+        assertEquals(3, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void percentilesOfKnownInputs() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(50500, histogram.getMean(TimeUnit.MICROSECONDS));
+        assertEquals(100, histogram.getMax(TimeUnit.MILLISECONDS));
+        assertWithinQuarter(50, histogram.getPercentile(50, TimeUnit.MILLISECONDS));
+        assertWithinQuarter(90, histogram.getPercentile(90, TimeUnit.MILLISECONDS));
+        assertWithinQuarter(99, histogram.getPercentile(99, TimeUnit.MILLISECONDS));
+        assertEquals(100, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, histogram.getPercentile(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void eachPowerOfTwoHasFourBuckets() {
+        // 1024 to 2047 is split at 1280, 1536 and 1792; p50 is the top of the bucket of the lower
+        // value, the higher one only keeps p50 from being capped at the max.
+        assertEquals(1279, p50(1024, 1 << 20));
+        assertEquals(1279, p50(1279, 1 << 20));
+        assertEquals(1535, p50(1280, 1 << 20));
+        assertEquals(1791, p50(1536, 1 << 20));
+        assertEquals(2047, p50(1792, 1 << 20));
+        assertEquals(2559, p50(2048, 1 << 20));
+    }
+
+    @Test
+    public void percentilesAreWithinAQuarterOfTheValue() {
+        Random random = new Random(13);
+        for (int i = 0; i < 10000; i++) {
+            long nanos = 4 + (random.nextLong() >>> (2 + random.nextInt(60)));
+            long p50 = p50(nanos, Long.MAX_VALUE);
+            assertTrue(nanos + " -> " + p50, p50 >= nanos && p50 - nanos < (nanos + 3) / 4);
+        }
+    }
+
+    @Test
+    public void percentileIsCappedAtTheMax() {
+        assertEquals(1100, record(1100).getPercentile(50, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = record(10, 20, 30);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+        assertEquals("count=0 mean=0.0 p50=0.0 p90=0.0 p99=0.0 max=0.0ms", histogram.toString());
+    }
+
+    private static void assertWithinQuarter(long expected, long actual) {
+        assertTrue(expected + " -> " + actual, actual >= expected && actual <= expected * 5 / 4);
+    }
+
+    private static long p50(long low, long high) {
+        return record(low, high).getPercentile(50, TimeUnit.NANOSECONDS);
+    }
+
+    private static LatencyHistogram record(long... nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : nanos) {
+            histogram.record(value);
+        }
+        return histogram;
+    }
+}
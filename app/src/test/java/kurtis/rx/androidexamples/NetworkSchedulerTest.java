@@ -0,0 +1,172 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NetworkSchedulerTest {
+
+    private final List<Throwable> mUncaught = new CopyOnWriteArrayList<>();
+    private Thread.UncaughtExceptionHandler mDefaultHandler;
+
+    @Before
+    public void setUp() {
+        mDefaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                mUncaught.add(throwable);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Thread.setDefaultUncaughtExceptionHandler(mDefaultHandler);
+    }
+
+    @Test
+    public void workerGoesOnAfterAnActionThrows() throws InterruptedException {
+        Scheduler.Worker worker = new NetworkScheduler(1, 4).createWorker();
+        final CountDownLatch ran = new CountDownLatch(1);
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                throw new IllegalStateException("Broken action");
+            }
+        });
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                ran.countDown();
+            }
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(1, mUncaught.size());
+        assertEquals("Broken action", mUncaught.get(0).getCause().getMessage());
+        worker.unsubscribe();
+    }
+
+    @Test
+    public void rejectsWorkBeyondThreadsAndQueue() throws InterruptedException {
+        NetworkScheduler scheduler = new NetworkScheduler(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler.Worker running = scheduler.createWorker();
+        Scheduler.Worker queued = scheduler.createWorker();
+        running.schedule(await(release));
+        queued.schedule(await(release));
+
+        try {
+            scheduler.createWorker().schedule(await(release));
+            fail("Expected the saturated scheduler to reject");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, scheduler.getRejectedCount());
+        }
+        release.countDown();
+    }
+
+    @Test
+    public void rejectsActionsBeyondTheWorkersQueue() {
+        NetworkScheduler scheduler = new NetworkScheduler(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(await(release));
+        worker.schedule(await(release));
+
+        try {
+            worker.schedule(await(release));
+            fail("Expected the full worker to reject");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, scheduler.getRejectedCount());
+        }
+        release.countDown();
+    }
+
+    @Test
+    public void delayedActionWaitsForAThreadInsteadOfBeingDropped() throws InterruptedException {
+        NetworkScheduler scheduler = new NetworkScheduler(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.createWorker().schedule(await(release));
+        scheduler.createWorker().schedule(await(release));
+        final CountDownLatch ran = new CountDownLatch(1);
+        scheduler.createWorker().schedule(new Action0() {
+            @Override
+            public void call() {
+                ran.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(100);
+        assertTrue(scheduler.getDeferredCount() > 0);
+        assertEquals(1, ran.getCount());
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getRejectedCount());
+    }
+
+    @Test
+    public void unsubscribedDelayedActionDoesNotRun() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        new NetworkScheduler(1, 1).createWorker().schedule(new Action0() {
+            @Override
+            public void call() {
+                ran.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS).unsubscribe();
+
+        assertTrue(!ran.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void unsubscribeInterruptsTheRunningAction() throws InterruptedException {
+        Scheduler.Worker worker = new NetworkScheduler(1, 1).createWorker();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new RuntimeException("Call cancelled", e);
+                }
+            }
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        worker.unsubscribe();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        // The cancelled call giving up is not an error.
+        assertEquals(0, mUncaught.size());
+    }
+
+    private static Action0 await(final CountDownLatch latch) {
+        return new Action0() {
+            @Override
+            public void call() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
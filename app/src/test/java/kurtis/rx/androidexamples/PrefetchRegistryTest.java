@@ -0,0 +1,153 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PrefetchRegistryTest {
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final PrefetchRegistry mRegistry = new PrefetchRegistry(10, TimeUnit.SECONDS, mScheduler);
+    private final PublishSubject<String> mResponse = PublishSubject.create();
+    private final AtomicInteger mLoads = new AtomicInteger();
+    private final AtomicInteger mSubscriptions = new AtomicInteger();
+    private final AtomicInteger mUnsubscriptions = new AtomicInteger();
+
+    @Test
+    public void loadStartsBeforeTheScreenClaimsIt() {
+        register(ShowsScreen.class);
+
+        mRegistry.prefetch(ShowsScreen.class);
+        mScheduler.triggerActions();
+
+        assertEquals(1, mLoads.get());
+        assertEquals(1, mSubscriptions.get());
+        assertEquals(1, mRegistry.getPrefetchCount());
+    }
+
+    @Test
+    public void claimReplaysEarlierEmissionsThenContinuesLive() {
+        register(ShowsScreen.class);
+        mRegistry.prefetch(ShowsScreen.class);
+        mScheduler.triggerActions();
+        mResponse.onNext("Archer");
+
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        mRegistry.<String>claim(ShowsScreen.class).subscribe(subscriber);
+        mResponse.onNext("Futurama");
+        mResponse.onCompleted();
+
+        subscriber.assertValues("Archer", "Futurama");
+        subscriber.assertCompleted();
+        assertEquals(1, mSubscriptions.get());
+        assertEquals(1, mRegistry.getClaimCount());
+    }
+
+    @Test
+    public void pendingPrefetchIsNotStartedTwice() {
+        register(ShowsScreen.class);
+
+        mRegistry.prefetch(ShowsScreen.class);
+        mRegistry.prefetch(ShowsScreen.class);
+        mScheduler.triggerActions();
+
+        assertEquals(1, mLoads.get());
+        assertEquals(1, mRegistry.getPrefetchCount());
+    }
+
+    @Test
+    public void prefetchIsClaimedOnce() {
+        register(ShowsScreen.class);
+        mRegistry.prefetch(ShowsScreen.class);
+
+        mRegistry.claim(ShowsScreen.class);
+
+        assertNull(mRegistry.claim(ShowsScreen.class));
+        assertEquals(1, mRegistry.getMissCount());
+    }
+
+    @Test
+    public void unregisteredScreenIsNotPrefetched() {
+        register(ShowsScreen.class);
+
+        mRegistry.prefetch(OtherScreen.class);
+        mScheduler.triggerActions();
+
+        assertEquals(0, mLoads.get());
+        assertNull(mRegistry.claim(OtherScreen.class));
+        assertEquals(1, mRegistry.getMissCount());
+    }
+
+    @Test
+    public void unclaimedPrefetchExpires() {
+        register(ShowsScreen.class);
+        mRegistry.prefetch(ShowsScreen.class);
+        mScheduler.triggerActions();
+
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertEquals(1, mUnsubscriptions.get());
+        assertEquals(1, mRegistry.getExpiredCount());
+        assertNull(mRegistry.claim(ShowsScreen.class));
+        mRegistry.prefetch(ShowsScreen.class);
+        assertEquals(2, mLoads.get());
+    }
+
+    @Test
+    public void claimedPrefetchDoesNotExpire() {
+        register(ShowsScreen.class);
+        mRegistry.prefetch(ShowsScreen.class);
+        mScheduler.triggerActions();
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        mRegistry.<String>claim(ShowsScreen.class).subscribe(subscriber);
+
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        mResponse.onNext("Archer");
+
+        assertEquals(0, mUnsubscriptions.get());
+        assertEquals(0, mRegistry.getExpiredCount());
+        subscriber.assertValue("Archer");
+    }
+
+    private void register(Class<?> target) {
+        mRegistry.register(target, new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                mLoads.incrementAndGet();
+                return mResponse
+                        .doOnSubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                mSubscriptions.incrementAndGet();
+                            }
+                        })
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                mUnsubscriptions.incrementAndGet();
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Stand-ins for Activity classes, which need Android.
+     */
+    private static final class ShowsScreen {
+    }
+
+    private static final class OtherScreen {
+    }
+}
@@ -0,0 +1,128 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryWithBackoffTest {
+
+    private final TestScheduler mScheduler = new TestScheduler();
+    private final RetryWithBackoff mRetry =
+            new RetryWithBackoff(3, 1, 8, TimeUnit.SECONDS, mScheduler, new Random(19));
+    private final AtomicInteger mAttempts = new AtomicInteger();
+    private final List<Long> mAttemptTimes = new ArrayList<>();
+
+    @Test
+    public void givesUpAfterMaxRetries() {
+        TestSubscriber<String> subscriber = subscribe(new IllegalStateException("Backend down"));
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        subscriber.assertError(IllegalStateException.class);
+        assertEquals(4, mAttempts.get());
+        assertEquals(3, mRetry.getRetryCount());
+        assertEquals(1, mRetry.getGivenUpCount());
+    }
+
+    @Test
+    public void recoversWhenARetrySucceeds() {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        Observable.fromCallable(new Callable<String>() {
+            @Override
+            public String call() {
+                if (mAttempts.incrementAndGet() < 3) {
+                    throw new IllegalStateException("Backend down");
+                }
+                return "ok";
+            }
+        }).retryWhen(mRetry).subscribe(subscriber);
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        subscriber.assertValue("ok");
+        assertEquals(2, mRetry.getRetryCount());
+        assertEquals(0, mRetry.getGivenUpCount());
+    }
+
+    @Test
+    public void delaysStayUnderTheDoublingCap() {
+        RetryWithBackoff retry = new RetryWithBackoff(6, 1, 8, TimeUnit.SECONDS, mScheduler, new Random(7));
+        subscribe(new IllegalStateException("Backend down"), retry);
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        assertEquals(7, mAttemptTimes.size());
+        long[] caps = {1000, 2000, 4000, 8000, 8000, 8000};
+        for (int retryNumber = 0; retryNumber < caps.length; retryNumber++) {
+            long delay = mAttemptTimes.get(retryNumber + 1) - mAttemptTimes.get(retryNumber);
+            assertTrue("retry " + retryNumber + " waited " + delay, delay >= 0 && delay <= caps[retryNumber]);
+        }
+    }
+
+    @Test
+    public void delaysAreJittered() {
+        RetryWithBackoff retry = new RetryWithBackoff(1, 1, 8, TimeUnit.SECONDS, mScheduler, new Random(3));
+        List<Long> delays = new ArrayList<>();
+        for (int client = 0; client < 20; client++) {
+            mAttemptTimes.clear();
+            subscribe(new IllegalStateException("Backend down"), retry);
+            mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+            delays.add(mAttemptTimes.get(1) - mAttemptTimes.get(0));
+        }
+
+        // Clients failing together don't all retry together.
+        assertTrue(delays.toString(), new HashSet<>(delays).size() > 10);
+    }
+
+    @Test
+    public void openBreakerIsNotRetried() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 30, TimeUnit.SECONDS, mScheduler);
+        Observable.<String>error(new IllegalStateException("Backend down")).compose(breaker.<String>protect())
+                .subscribe(new TestSubscriber<String>());
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        Observable.just("ok").compose(breaker.<String>protect()).retryWhen(mRetry).subscribe(subscriber);
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        subscriber.assertError(CircuitBreaker.OpenException.class);
+        assertEquals(0, mRetry.getRetryCount());
+        assertEquals(1, mRetry.getGivenUpCount());
+    }
+
+    @Test
+    public void cancelledCallIsNotRetried() {
+        TestSubscriber<String> subscriber = subscribe(new CancelledException("Call cancelled", new InterruptedException()));
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        subscriber.assertError(CancelledException.class);
+        assertEquals(1, mAttempts.get());
+        assertEquals(0, mRetry.getRetryCount());
+    }
+
+    private TestSubscriber<String> subscribe(RuntimeException error) {
+        return subscribe(error, mRetry);
+    }
+
+    private TestSubscriber<String> subscribe(final RuntimeException error, RetryWithBackoff retry) {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        Observable.fromCallable(new Callable<String>() {
+            @Override
+            public String call() {
+                mAttempts.incrementAndGet();
+                mAttemptTimes.add(mScheduler.now());
+                throw error;
+            }
+        }).retryWhen(retry).subscribe(subscriber);
+        return subscriber;
+    }
+}
@@ -0,0 +1,165 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.android.plugins.RxAndroidPlugins;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TestScheduler and the immediate scheduler never call the schedulers hook, so the actions run
+ * on Schedulers.newThread(), whose workers pick up the hook installed when they are created.
+ */
+public class SchedulerMetricsTest {
+
+    private static final String NEW_THREAD = "RxNewThreadScheduler";
+
+    @Before
+    public void setUp() throws Exception {
+        uninstall();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uninstall();
+    }
+
+    @Test
+    public void countsAndTimesEveryAction() throws Exception {
+        SchedulerMetrics.install(1);
+
+        run(10, 2, 0);
+        awaitRecorded(10);
+
+        SchedulerMetrics.Stats stats = SchedulerMetrics.getStats(NEW_THREAD);
+        assertEquals(10, stats.getTaskCount());
+        assertEquals(10, stats.getQueueLatency().getCount());
+        assertTrue(stats.getExecutionTime().getPercentile(50, TimeUnit.MILLISECONDS) >= 2);
+        String dump = SchedulerMetrics.dump();
+        assertTrue(dump, dump.startsWith("SchedulerMetrics sampleEvery=1 scheduled=10\n"));
+        assertTrue(dump, dump.contains("\n" + NEW_THREAD + ": tasks=10 queue[count=10 "));
+    }
+
+    @Test
+    public void queueLatencyIncludesTheScheduledDelay() throws Exception {
+        SchedulerMetrics.install(1);
+
+        run(1, 0, 20);
+        awaitRecorded(1);
+
+        SchedulerMetrics.Stats stats = SchedulerMetrics.getStats(NEW_THREAD);
+        assertTrue(stats.getQueueLatency().getMax(TimeUnit.MILLISECONDS) >= 20);
+        assertTrue(stats.getExecutionTime().getMax(TimeUnit.MILLISECONDS) < 20);
+    }
+
+    @Test
+    public void samplingTimesOneActionInN() throws Exception {
+        SchedulerMetrics.install(4);
+
+        run(400, 0, 0);
+        awaitRecorded(100);
+
+        SchedulerMetrics.Stats stats = SchedulerMetrics.getStats(NEW_THREAD);
+        assertEquals(100, stats.getExecutionTime().getCount());
+        assertEquals(100, stats.getQueueLatency().getCount());
+        assertEquals(400, stats.getTaskCount());
+        assertTrue(SchedulerMetrics.dump().startsWith("SchedulerMetrics sampleEvery=4 scheduled=400\n"));
+    }
+
+    @Test
+    public void resetForgetsEverything() throws Exception {
+        SchedulerMetrics.install(1);
+        run(3, 0, 0);
+        awaitRecorded(3);
+
+        SchedulerMetrics.reset();
+
+        assertEquals(null, SchedulerMetrics.getStats(NEW_THREAD));
+        assertEquals("SchedulerMetrics sampleEvery=1 scheduled=0", SchedulerMetrics.dump());
+    }
+
+    @Test
+    public void nothingIsRecordedWhenNotInstalled() throws Exception {
+        run(3, 0, 0);
+
+        assertEquals(null, SchedulerMetrics.getStats(NEW_THREAD));
+        assertEquals("SchedulerMetrics not installed", SchedulerMetrics.dump());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void installsOnce() {
+        SchedulerMetrics.install(1);
+        SchedulerMetrics.install(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSampleEveryBelowOne() {
+        SchedulerMetrics.install(0);
+    }
+
+    /**
+     * Runs {@code count} actions of {@code sleepMillis} each, one after another on a new thread,
+     * the first one after {@code delayMillis}.
+     */
+    private static void run(int count, final long sleepMillis, long delayMillis) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(count);
+        Scheduler.Worker worker = Schedulers.newThread().createWorker();
+        try {
+            for (int i = 0; i < count; i++) {
+                worker.schedule(new Action0() {
+                    @Override
+                    public void call() {
+                        try {
+                            Thread.sleep(sleepMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        done.countDown();
+                    }
+                }, i == 0 ? delayMillis : 0, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            worker.unsubscribe();
+        }
+    }
+
+    /**
+     * An action is timed until it returns, i.e. a little after it counted down.
+     */
+    private static void awaitRecorded(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        SchedulerMetrics.Stats stats;
+        while ((stats = SchedulerMetrics.getStats(NEW_THREAD)) == null
+                || stats.getExecutionTime().getCount() < count) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * RxJava takes a schedulers hook only once per process and only lets its own tests reset it,
+     * so every test starts from a clean slate this way.
+     */
+    private static void uninstall() throws Exception {
+        Method reset = RxJavaPlugins.class.getDeclaredMethod("reset");
+        reset.setAccessible(true);
+        reset.invoke(RxJavaPlugins.getInstance());
+        RxAndroidPlugins.getInstance().reset();
+        Field instance = SchedulerMetrics.class.getDeclaredField("sInstance");
+        instance.setAccessible(true);
+        instance.set(null, null);
+    }
+}
@@ -0,0 +1,86 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SearchResultCacheTest {
+
+    private static final List<String> BOSTON = Collections.singletonList("Boston");
+
+    @Test
+    public void queriesDifferingInCaseShareAnEntry() {
+        SearchResultCache cache = new SearchResultCache(10, 1 << 20, 1, TimeUnit.MINUTES);
+        cache.put("Bos", BOSTON);
+
+        assertEquals(BOSTON, cache.get("bOS"));
+        assertNull(cache.get("Bost"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedFirst() {
+        SearchResultCache cache = new SearchResultCache(2, 1 << 20, 1, TimeUnit.MINUTES);
+        cache.put("a", BOSTON);
+        cache.put("b", BOSTON);
+        cache.get("a");
+
+        cache.put("c", BOSTON);
+
+        assertEquals(BOSTON, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(BOSTON, cache.get("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void byteBoundEvictsAndSkipsOversizedResults() {
+        SearchResultCache cache = new SearchResultCache(100, 200, 1, TimeUnit.MINUTES);
+        cache.put("a", BOSTON);
+        cache.put("b", BOSTON);
+        cache.put("c", BOSTON);
+
+        assertTrue(cache.getByteSize() <= 200);
+        assertNull(cache.get("a"));
+
+        List<String> huge = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            huge.add("City " + i);
+        }
+        int size = cache.size();
+        cache.put("huge", huge);
+        assertNull(cache.get("huge"));
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void expiredEntriesAreMisses() throws InterruptedException {
+        SearchResultCache cache = new SearchResultCache(10, 1 << 20, 20, TimeUnit.MILLISECONDS);
+        cache.put("Bos", BOSTON);
+        Thread.sleep(50);
+
+        assertNull(cache.get("Bos"));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteSize());
+    }
+
+    @Test
+    public void cachedResultsAreACopy() {
+        SearchResultCache cache = new SearchResultCache(10, 1 << 20, 1, TimeUnit.MINUTES);
+        List<String> results = new ArrayList<>(Arrays.asList("Boston", "Bozeman"));
+        cache.put("Bo", results);
+        results.clear();
+
+        assertEquals(Arrays.asList("Boston", "Bozeman"), cache.get("Bo"));
+    }
+}
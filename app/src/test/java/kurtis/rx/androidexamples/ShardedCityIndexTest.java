@@ -0,0 +1,93 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShardedCityIndexTest {
+
+    private static final String[] CITIES = cities(5000);
+
+    @Test
+    public void matchesLinearScanForAnyShardCount() {
+        for (int shards : new int[]{1, 2, 3, 7, 16}) {
+            ShardedCityIndex index = new ShardedCityIndex(CITIES, shards, Schedulers.computation());
+            assertEquals(shards, index.getShardCount());
+            for (String query : new String[]{"S", "s", "sa", "San", "SAN F", "Spr", "x", "Zz", ""}) {
+                assertEquals(shards + " shards, " + query, linearScan(CITIES, query), index.findByPrefix(query));
+            }
+        }
+    }
+
+    @Test
+    public void getFindsEveryPositionAcrossShards() {
+        ShardedCityIndex index = new ShardedCityIndex(CITIES, 7, Schedulers.immediate());
+
+        assertEquals(CITIES.length, index.size());
+        for (int i = 0; i < CITIES.length; i++) {
+            assertEquals(CITIES[i], index.get(i));
+        }
+    }
+
+    @Test
+    public void moreShardsThanCitiesLeavesNoShardEmpty() {
+        String[] cities = {"Boston", "Austin", "Boise"};
+        ShardedCityIndex index = new ShardedCityIndex(cities, 8, Schedulers.immediate());
+
+        assertEquals(3, index.getShardCount());
+        assertEquals(linearScan(cities, "Bo"), index.findByPrefix("Bo"));
+        assertEquals("Boise", index.get(2));
+    }
+
+    @Test
+    public void searchEmitsOnceWithEveryShardJoined() {
+        ShardedCityIndex index = new ShardedCityIndex(CITIES, 4, Schedulers.computation());
+        TestSubscriber<List<String>> subscriber = new TestSubscriber<>();
+
+        index.search("Sa").subscribe(subscriber);
+        subscriber.awaitTerminalEvent();
+
+        subscriber.assertNoErrors();
+        subscriber.assertValueCount(1);
+        assertEquals(linearScan(CITIES, "Sa"), subscriber.getOnNextEvents().get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroShards() {
+        new ShardedCityIndex(CITIES, 0, Schedulers.immediate());
+    }
+
+    private static List<String> linearScan(String[] cities, String prefix) {
+        List<String> matches = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            return matches;
+        }
+        for (String city : cities) {
+            if (CityKeys.of(city).startsWith(CityKeys.of(prefix))) {
+                matches.add(city);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Unsorted, with repeated names, so list order and duplicates both matter.
+     */
+    private static String[] cities(int count) {
+        String[] starts = {"San", "Santa", "Spring", "St.", "Sa", "Boston", "Austin", "Zürich", "new "};
+        String[] ends = {"", " Francisco", "field", " Louis", "lem", " Heights", "burg", "ton"};
+        Random random = new Random(25);
+        String[] cities = new String[count];
+        for (int i = 0; i < count; i++) {
+            cities[i] = starts[random.nextInt(starts.length)] + ends[random.nextInt(ends.length)];
+        }
+        return cities;
+    }
+}
@@ -0,0 +1,81 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedLatencyTest {
+
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void fixedAlwaysTakesTheSameTime() {
+        SimulatedLatency latency = SimulatedLatency.fixed(250);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(250, latency.nextDelayMillis());
+        }
+    }
+
+    @Test
+    public void uniformCoversItsWholeRangeAndNothingElse() {
+        SimulatedLatency latency = SimulatedLatency.uniform(10, 13);
+        int[] seen = new int[4];
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = latency.nextDelayMillis();
+            assertTrue(String.valueOf(delay), delay >= 10 && delay <= 13);
+            seen[(int) delay - 10]++;
+        }
+
+        for (int count : seen) {
+            assertTrue(count > 0);
+        }
+    }
+
+    @Test
+    public void longTailHasTheConfiguredMedianAndP99() {
+        SimulatedLatency latency = SimulatedLatency.longTail(100, 1000);
+        int belowMedian = 0;
+        int aboveP99 = 0;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            long delay = latency.nextDelayMillis();
+            assertTrue(String.valueOf(delay), delay >= 0);
+            if (delay < 100) {
+                belowMedian++;
+            } else if (delay > 1000) {
+                aboveP99++;
+            }
+        }
+
+        // Many standard deviations wide: about half below the median, one in a hundred above p99.
+        assertTrue(String.valueOf(belowMedian), belowMedian > 0.47 * SAMPLES && belowMedian < 0.51 * SAMPLES);
+        assertTrue(String.valueOf(aboveP99), aboveP99 > 0.007 * SAMPLES && aboveP99 < 0.013 * SAMPLES);
+    }
+
+    @Test
+    public void longTailWithoutTailIsFixed() {
+        SimulatedLatency latency = SimulatedLatency.longTail(40, 40);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(40, latency.nextDelayMillis());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeFixedLatency() {
+        SimulatedLatency.fixed(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyUniformRange() {
+        SimulatedLatency.uniform(20, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsP99BelowTheMedian() {
+        SimulatedLatency.longTail(100, 50);
+    }
+}
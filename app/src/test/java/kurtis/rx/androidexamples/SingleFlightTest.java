@@ -0,0 +1,134 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> mRequests = new SingleFlight<>();
+    private final AtomicInteger mStarted = new AtomicInteger();
+
+    @Test
+    public void subscribersWhileInFlightShareOneExecution() {
+        PublishSubject<String> response = PublishSubject.create();
+        TestSubscriber<String> first = new TestSubscriber<>();
+        TestSubscriber<String> second = new TestSubscriber<>();
+
+        request("shows", response).subscribe(first);
+        request("shows", response).subscribe(second);
+        response.onNext("Archer");
+        response.onCompleted();
+
+        first.assertValue("Archer");
+        second.assertValue("Archer");
+        assertEquals(1, mStarted.get());
+        assertEquals(1, mRequests.getExecutionCount());
+        assertEquals(1, mRequests.getCoalescedCount());
+    }
+
+    @Test
+    public void lateJoinerGetsEarlierEmissionsReplayed() {
+        PublishSubject<String> response = PublishSubject.create();
+        request("shows", response).subscribe(new TestSubscriber<String>());
+        response.onNext("Archer");
+
+        TestSubscriber<String> late = new TestSubscriber<>();
+        request("shows", response).subscribe(late);
+        response.onNext("Futurama");
+        response.onCompleted();
+
+        late.assertValues("Archer", "Futurama");
+        late.assertCompleted();
+    }
+
+    @Test
+    public void keyIsReleasedOnceTheRequestTerminates() {
+        PublishSubject<String> failing = PublishSubject.create();
+        TestSubscriber<String> failed = new TestSubscriber<>();
+        request("shows", failing).subscribe(failed);
+        failing.onError(new IllegalStateException("Failed to load"));
+        failed.assertError(IllegalStateException.class);
+
+        PublishSubject<String> retry = PublishSubject.create();
+        TestSubscriber<String> second = new TestSubscriber<>();
+        request("shows", retry).subscribe(second);
+        retry.onNext("Archer");
+        retry.onCompleted();
+
+        second.assertValue("Archer");
+        assertEquals(2, mStarted.get());
+        assertEquals(0, mRequests.getCoalescedCount());
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() {
+        PublishSubject<String> response = PublishSubject.create();
+        request("shows", response).subscribe(new TestSubscriber<String>());
+        request("showsWithException", response).subscribe(new TestSubscriber<String>());
+
+        assertEquals(2, mStarted.get());
+    }
+
+    @Test
+    public void concurrentSubscribersStartOneCall() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        Func0<Observable<String>> slowCall = new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                return Observable.fromCallable(new Callable<String>() {
+                    @Override
+                    public String call() throws InterruptedException {
+                        calls.incrementAndGet();
+                        release.await();
+                        return "Archer";
+                    }
+                });
+            }
+        };
+        List<TestSubscriber<String>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            TestSubscriber<String> subscriber = new TestSubscriber<>();
+            mRequests.execute("shows", slowCall).subscribeOn(Schedulers.io()).subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mRequests.getExecutionCount() + mRequests.getCoalescedCount() < 16
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (TestSubscriber<String> subscriber : subscribers) {
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            subscriber.assertValue("Archer");
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, mRequests.getExecutionCount());
+        assertEquals(15, mRequests.getCoalescedCount());
+    }
+
+    private Observable<String> request(String key, final Observable<String> response) {
+        return mRequests.execute(key, new Func0<Observable<String>>() {
+            @Override
+            public Observable<String> call() {
+                mStarted.incrementAndGet();
+                return response;
+            }
+        });
+    }
+}
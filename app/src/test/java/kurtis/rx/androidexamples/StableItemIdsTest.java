@@ -0,0 +1,122 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class StableItemIdsTest {
+
+    private static final int BINDS_PER_SCROLL = 200 * 2 * 1000;
+
+    private final StableItemIds mIds = new StableItemIds();
+
+    @Test
+    public void stringKeepsItsIdAcrossUpdates() {
+        mIds.assign(Arrays.asList("Boston", "Austin", "Denver"), 0);
+        Set<Long> before = new HashSet<>(Arrays.asList(mIds.get(0), mIds.get(1), mIds.get(2)));
+        long austin = mIds.get(1);
+
+        mIds.assign(Arrays.asList("Austin", "Dallas"), 0);
+
+        assertEquals(austin, mIds.get(0));
+        assertFalse(before.contains(mIds.get(1)));
+    }
+
+    @Test
+    public void repeatedStringsGetIdsOfTheirOwn() {
+        mIds.assign(Arrays.asList("Springfield", "Springfield", "Salem"), 0);
+
+        assertNotEquals(mIds.get(0), mIds.get(1));
+        long second = mIds.get(1);
+        mIds.assign(Arrays.asList("Salem", "Springfield", "Springfield"), 0);
+        assertEquals(second, mIds.get(2));
+    }
+
+    @Test
+    public void appendKeepsTheIdsBeforeIt() {
+        List<String> strings = new ArrayList<>(Arrays.asList("Boston", "Austin"));
+        mIds.assign(strings, 0);
+        long boston = mIds.get(0);
+        long austin = mIds.get(1);
+
+        strings.addAll(Arrays.asList("Denver", "Boston"));
+        mIds.assign(strings, 2);
+
+        assertEquals(boston, mIds.get(0));
+        assertEquals(austin, mIds.get(1));
+        assertNotEquals(boston, mIds.get(3));
+        assertEquals(4, mIds.size());
+    }
+
+    @Test
+    public void onlyTheCurrentStringsAreRemembered() {
+        for (int search = 0; search < 1000; search++) {
+            List<String> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add("City " + search + "-" + i);
+            }
+            mIds.assign(results, 0);
+        }
+
+        assertEquals(20, mIds.size());
+    }
+
+    @Test
+    public void idsAreNeverReusedForAnotherString() {
+        mIds.assign(Arrays.asList("Boston"), 0);
+        long boston = mIds.get(0);
+        mIds.assign(Arrays.asList("Austin"), 0);
+
+        assertNotEquals(boston, mIds.get(0));
+    }
+
+    @Test
+    public void bindingAllocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            strings.add("City " + i);
+        }
+        mIds.assign(strings, 0);
+        long threadId = Thread.currentThread().getId();
+
+        // What a bind reads, scrolled up and down the list; warmed up so nothing is compiled or
+        // loaded while measuring.
+        long checksum = scroll(strings);
+        long start = threads.getThreadAllocatedBytes(threadId);
+        checksum += scroll(strings);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - start;
+
+        // Boxing a single id per bind would be megabytes; the JVM itself may allocate a few bytes.
+        assertTrue(allocated + " bytes for " + BINDS_PER_SCROLL + " binds", allocated < BINDS_PER_SCROLL);
+        assertNotEquals(0, checksum);
+    }
+
+    private long scroll(List<String> strings) {
+        long checksum = 0;
+        for (int pass = 0; pass < 200; pass++) {
+            for (int position = 0; position < strings.size(); position++) {
+                checksum += mIds.get(position) + strings.get(position).length();
+            }
+            for (int position = strings.size() - 1; position >= 0; position--) {
+                checksum += mIds.get(position);
+            }
+        }
+        return checksum;
+    }
+}
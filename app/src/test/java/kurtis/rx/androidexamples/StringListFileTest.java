@@ -0,0 +1,123 @@
+package kurtis.rx.androidexamples;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StringListFileTest {
+
+    private File mDir;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = File.createTempFile("StringListFileTest", "");
+        assertTrue(mDir.delete() && mDir.mkdir());
+        mFile = new File(mDir, "favorites");
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : mDir.listFiles()) {
+            file.delete();
+        }
+        mDir.delete();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        List<String> strings = Arrays.asList("Fargo", "", "Dark", "\u00dcn\u00efc\u00f6d\u00e9");
+        new StringListFile(mFile).write(strings);
+
+        assertEquals(strings, new StringListFile(mFile).read());
+    }
+
+    @Test
+    public void missingFileIsNoList() {
+        assertNull(new StringListFile(mFile).read());
+    }
+
+    @Test
+    public void negativeCountIsNoList() throws IOException {
+        writeHeader(0x534c4631, -1);
+
+        assertNull(new StringListFile(mFile).read());
+    }
+
+    @Test
+    public void countBeyondTheFileIsNoList() throws IOException {
+        writeHeader(0x534c4631, Integer.MAX_VALUE);
+
+        assertNull(new StringListFile(mFile).read());
+    }
+
+    @Test
+    public void truncatedFileIsNoList() throws IOException {
+        writeHeader(0x534c4631, 2);
+
+        assertNull(new StringListFile(mFile).read());
+    }
+
+    @Test
+    public void concurrentWritesLeaveOneCompleteList() throws Exception {
+        final StringListFile file = new StringListFile(mFile);
+        final List<List<String>> written = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            written.add(Collections.nCopies(2000, "show of writer " + writer));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (final List<String> strings : written) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            file.write(strings);
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertTrue(written.contains(file.read()));
+        // No temporary files are left behind.
+        assertEquals(1, mDir.listFiles().length);
+    }
+
+    private void writeHeader(int magic, int count) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mFile));
+        try {
+            out.writeInt(magic);
+            out.writeInt(count);
+        } finally {
+            out.close();
+        }
+    }
+}
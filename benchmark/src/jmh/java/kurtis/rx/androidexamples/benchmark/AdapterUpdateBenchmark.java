@@ -0,0 +1,76 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.StableItemIds;
+
+/**
+ * What SimpleStringAdapter does with a new list besides notifying the RecyclerView, which needs
+ * Android: copy it in and assign its stable ids with the adapter's own {@link StableItemIds}, or
+ * snapshot both lists for a background diff.
+ *
+ * The adapter starts out showing a list and every invocation replaces it with a slightly changed
+ * version of it (one string in a hundred different), then back again, as search results do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdapterUpdateBenchmark {
+
+    @Param({"385", "10000", "100000", "1000000"})
+    int mSize;
+
+    private final List<String> mStrings = new ArrayList<>();
+    private final StableItemIds mItemIds = new StableItemIds();
+    private List<String> mOldStrings;
+    private List<String> mNewStrings;
+    private boolean mShowingNew;
+
+    @Setup
+    public void setUp() {
+        mOldStrings = Arrays.asList(CityDataSets.cities(mSize));
+        String[] changed = CityDataSets.cities(mSize);
+        for (int i = 0; i < changed.length; i += 100) {
+            changed[i] = changed[i] + " Heights";
+        }
+        mNewStrings = Arrays.asList(changed);
+        mStrings.addAll(mOldStrings);
+        mItemIds.assign(mStrings, 0);
+    }
+
+    /**
+     * SimpleStringAdapter.setStrings before notifyDataSetChanged.
+     */
+    @Benchmark
+    public List<String> setStrings() {
+        List<String> newStrings = mShowingNew ? mOldStrings : mNewStrings;
+        mShowingNew = !mShowingNew;
+        mStrings.clear();
+        mStrings.addAll(newStrings);
+        mItemIds.assign(mStrings, 0);
+        return mStrings;
+    }
+
+    /**
+     * The copies updateStrings makes of the shown and the new list before handing them to the
+     * background diff.
+     */
+    @Benchmark
+    public List<String> snapshotForDiff() {
+        List<String> oldStrings = new ArrayList<>(mStrings);
+        List<String> newStrings = new ArrayList<>(mNewStrings);
+        return oldStrings.size() > newStrings.size() ? oldStrings : newStrings;
+    }
+}
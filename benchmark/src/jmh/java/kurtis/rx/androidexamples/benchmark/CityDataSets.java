@@ -0,0 +1,120 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * City lists for the benchmarks: the real list shipped with the app, or synthetic lists of any size
+ * made up from the same building blocks city names usually have.
+ */
+final class CityDataSets {
+
+    static final int APP_CITY_COUNT = 385;
+
+    private static final String CITY_LIST_PROPERTY = "benchmark.cityList";
+    private static final Pattern ITEM = Pattern.compile("<item>(.*?)</item>");
+
+    private static final String[] PREFIXES = {
+            "", "", "", "", "New ", "San ", "Santa ", "Fort ", "Port ", "East ", "West ", "North ", "South ", "Lake ", "Mount "
+    };
+    private static final String[] SYLLABLES = {
+            "al", "an", "ar", "ba", "ber", "bro", "ca", "chester", "da", "del", "den", "el", "fa", "gan", "ha", "hill",
+            "ka", "la", "lan", "ley", "ma", "mar", "mo", "na", "nor", "o", "pa", "ra", "ri", "ro", "sa", "ster", "ta",
+            "ton", "va", "ver", "wa", "win", "ya", "zo"
+    };
+    private static final String[] SUFFIXES = {
+            "", "", "", "ville", "ton", "burg", "field", "port", "wood", "ford", " City", " Springs", " Falls", " Heights"
+    };
+
+    private CityDataSets() {
+    }
+
+    /**
+     * Returns the app's own city list for {@link #APP_CITY_COUNT} when it can be found, and a
+     * synthetic list otherwise.
+     */
+    static String[] cities(int size) {
+        if (size == APP_CITY_COUNT) {
+            String[] appCities = loadAppCities();
+            if (appCities != null) {
+                return appCities;
+            }
+        }
+        return synthetic(size, 42);
+    }
+
+    /**
+     * Deterministic list of made-up city names; the same size and seed always give the same list.
+     */
+    static String[] synthetic(int size, long seed) {
+        Random random = new Random(seed);
+        String[] cities = new String[size];
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            name.setLength(0);
+            name.append(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int start = name.length();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+            name.append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            cities[i] = name.toString();
+        }
+        return cities;
+    }
+
+    /**
+     * Prefixes of 1 to 4 characters taken from the list itself, the queries a typing user sends.
+     */
+    static String[] queries(String[] cities, int count, long seed) {
+        Random random = new Random(seed);
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String city = cities[random.nextInt(cities.length)];
+            queries[i] = city.substring(0, Math.min(city.length(), 1 + random.nextInt(4)));
+        }
+        return queries;
+    }
+
+    /**
+     * Prefixes of 4 to 10 characters with one letter replaced, the queries a user with a typo sends.
+     */
+    static String[] misspelledQueries(String[] cities, int count, long seed) {
+        Random random = new Random(seed);
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String city = cities[random.nextInt(cities.length)];
+            char[] query = city.substring(0, Math.min(city.length(), 4 + random.nextInt(7))).toCharArray();
+            query[random.nextInt(query.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(query);
+        }
+        return queries;
+    }
+
+    private static String[] loadAppCities() {
+        String path = System.getProperty(CITY_LIST_PROPERTY);
+        if (path == null) {
+            return null;
+        }
+        try {
+            String xml = new String(Files.readAllBytes(new File(path).toPath()), Charset.forName("UTF-8"));
+            List<String> cities = new ArrayList<>();
+            Matcher matcher = ITEM.matcher(xml);
+            while (matcher.find()) {
+                cities.add(matcher.group(1));
+            }
+            return cities.toArray(new String[cities.size()]);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
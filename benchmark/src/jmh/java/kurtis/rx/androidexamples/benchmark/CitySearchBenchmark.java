@@ -0,0 +1,95 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import kurtis.rx.androidexamples.MappedCityIndex;
+
+/**
+ * The matching done by RestClient.getMatchingCities, without the simulated network delay.
+ *
+ * {@link #linearScan()} is the original implementation, which lower-cases every city on every
+ * query; {@link #prefixIndex()} is the {@link CityPrefixIndex} that replaced it, and
+ * {@link #mappedIndex()} the {@link MappedCityIndex} the app now maps from its compiled asset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CitySearchBenchmark {
+
+    @Param({"385", "10000", "100000", "1000000"})
+    int mSize;
+
+    private String[] mCities;
+    private CityPrefixIndex mIndex;
+    private MappedCityIndex mMappedIndex;
+    private String[] mQueries;
+    private int mNextQuery;
+
+    @Setup
+    public void setUp() throws IOException {
+        mCities = CityDataSets.cities(mSize);
+        mIndex = new CityPrefixIndex(mCities);
+        mMappedIndex = mapIndex(mCities);
+        mQueries = CityDataSets.queries(mCities, 1024, 7);
+    }
+
+    @Benchmark
+    public List<String> linearScan() {
+        String searchString = nextQuery();
+        List<String> toReturn = new ArrayList<>();
+        for (String city : mCities) {
+            if (city.toLowerCase().startsWith(searchString.toLowerCase())) {
+                toReturn.add(city);
+            }
+        }
+        return toReturn;
+    }
+
+    @Benchmark
+    public List<String> prefixIndex() {
+        return mIndex.findByPrefix(nextQuery());
+    }
+
+    @Benchmark
+    public List<String> mappedIndex() {
+        return mMappedIndex.findByPrefix(nextQuery());
+    }
+
+    private static MappedCityIndex mapIndex(String[] cities) throws IOException {
+        File file = File.createTempFile("cities", ".idx");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            MappedCityIndex.write(cities, out);
+        } finally {
+            out.close();
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return MappedCityIndex.map(in.getChannel(), 0, file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    private String nextQuery() {
+        return mQueries[mNextQuery++ & (mQueries.length - 1)];
+    }
+}
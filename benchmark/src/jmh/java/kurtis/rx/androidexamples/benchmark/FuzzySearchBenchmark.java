@@ -0,0 +1,49 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import kurtis.rx.androidexamples.FuzzyCityIndex;
+
+/**
+ * Typo-tolerant search with the budget and result cap Example6 uses, for queries with one wrong
+ * letter. The sample time percentiles show how close the slowest queries get to the budget.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzySearchBenchmark {
+
+    private static final int MAX_RESULTS = 20;
+    private static final long BUDGET_MILLIS = 30;
+
+    @Param({"385", "10000", "100000", "1000000"})
+    int mSize;
+
+    private FuzzyCityIndex mIndex;
+    private String[] mQueries;
+    private int mNextQuery;
+
+    @Setup
+    public void setUp() {
+        String[] cities = CityDataSets.cities(mSize);
+        mIndex = new FuzzyCityIndex(new CityPrefixIndex(cities));
+        mQueries = CityDataSets.misspelledQueries(cities, 1024, 7);
+    }
+
+    @Benchmark
+    public List<String> findSimilar() {
+        return mIndex.findSimilar(mQueries[mNextQuery++ & (mQueries.length - 1)],
+                MAX_RESULTS, BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
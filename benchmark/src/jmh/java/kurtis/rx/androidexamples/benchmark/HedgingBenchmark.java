@@ -0,0 +1,74 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.AsyncRestClient;
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import kurtis.rx.androidexamples.HedgedRequest;
+import kurtis.rx.androidexamples.SimulatedLatency;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * City searches against a backend with a long latency tail (median 5 ms, p99 40 ms), with and
+ * without hedging at the recent p95 as Example6 does with SEARCH_HEDGING. Compare the p0.99 rows
+ * of the sample time results; the hedge rate is printed at the end of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HedgingBenchmark {
+
+    @Param({"false", "true"})
+    boolean mHedged;
+
+    private String[] mQueries;
+    private int mNextQuery;
+
+    private AsyncRestClient mRestClient;
+    private HedgedRequest mHedge;
+
+    @Setup
+    public void setUp() {
+        String[] cities = CityDataSets.cities(385);
+        mQueries = CityDataSets.queries(cities, 1024, 7);
+        mRestClient = new AsyncRestClient(new CityPrefixIndex(cities), Collections.<String>emptyList(),
+                SimulatedLatency.fixed(0), SimulatedLatency.longTail(5, 40), Schedulers.computation());
+        mHedge = new HedgedRequest(95, 100, 20, Schedulers.computation());
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mHedged) {
+            System.out.println();
+            System.out.println(mHedge);
+        }
+    }
+
+    @Benchmark
+    public List<String> search() {
+        final String query = mQueries[mNextQuery++ & (mQueries.length - 1)];
+        if (!mHedged) {
+            return mRestClient.searchForCity(query).toBlocking().single();
+        }
+        return mHedge.executeBlocking(new Func0<Observable<List<String>>>() {
+            @Override
+            public Observable<List<String>> call() {
+                return mRestClient.searchForCity(query);
+            }
+        });
+    }
+}
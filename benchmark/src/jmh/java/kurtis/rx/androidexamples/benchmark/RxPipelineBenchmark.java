@@ -0,0 +1,148 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import rx.Observable;
+import rx.Observer;
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.subjects.PublishSubject;
+
+/**
+ * Per-emission cost of the Rx chains used by the examples, on the calling thread so that only the
+ * operators are measured and not the scheduler hops.
+ *
+ * Compare {@link #example6SearchDirect} with the other example6 benchmarks to see what the chain
+ * adds on top of the search itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RxPipelineBenchmark {
+
+    @Param({"385", "10000", "100000", "1000000"})
+    int mSize;
+
+    private CityPrefixIndex mIndex;
+    private String[] mQueries;
+    private int mNextQuery;
+
+    private Func1<String, List<String>> mSearch;
+    private PublishSubject<String> mSearchSubject;
+    private Subscription mSearchSubscription;
+    private Blackhole mBlackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        String[] cities = CityDataSets.cities(mSize);
+        mIndex = new CityPrefixIndex(cities);
+        mQueries = CityDataSets.queries(cities, 1024, 7);
+        mBlackhole = blackhole;
+        mSearch = new Func1<String, List<String>>() {
+            @Override
+            public List<String> call(String s) {
+                return mIndex.findByPrefix(s);
+            }
+        };
+
+        // The long-lived chain of Example6 minus debounce and the thread hops.
+        mSearchSubject = PublishSubject.create();
+        mSearchSubscription = mSearchSubject
+                .map(mSearch)
+                .doOnNext(new Action1<List<String>>() {
+                    @Override
+                    public void call(List<String> strings) {
+                    }
+                })
+                .subscribe(new Observer<List<String>>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+
+                    @Override
+                    public void onNext(List<String> cities) {
+                        mBlackhole.consume(cities);
+                    }
+                });
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSearchSubscription.unsubscribe();
+    }
+
+    /**
+     * Example5: a Single created, mapped and subscribed for one value.
+     */
+    @Benchmark
+    public void example5SingleMap(final Blackhole blackhole) {
+        Single.just(4).map(new Func1<Integer, String>() {
+            @Override
+            public String call(Integer integer) {
+                return String.valueOf(integer);
+            }
+        }).subscribe(new SingleSubscriber<String>() {
+            @Override
+            public void onSuccess(String value) {
+                blackhole.consume(value);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+    }
+
+    @Benchmark
+    public List<String> example6SearchDirect() {
+        return mSearch.call(nextQuery());
+    }
+
+    /**
+     * One query pushed through the already subscribed Example6 chain.
+     */
+    @Benchmark
+    public void example6SearchEmission() {
+        mSearchSubject.onNext(nextQuery());
+    }
+
+    /**
+     * One query through a chain assembled and subscribed for that query alone, like the inner
+     * Observable Example6 creates per query.
+     */
+    @Benchmark
+    public void example6SearchAssembled(final Blackhole blackhole) {
+        Observable.just(nextQuery())
+                .map(mSearch)
+                .subscribe(new Action1<List<String>>() {
+                    @Override
+                    public void call(List<String> cities) {
+                        blackhole.consume(cities);
+                    }
+                });
+    }
+
+    private String nextQuery() {
+        return mQueries[mNextQuery++ & (mQueries.length - 1)];
+    }
+}
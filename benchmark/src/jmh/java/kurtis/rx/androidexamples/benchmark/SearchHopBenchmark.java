@@ -0,0 +1,107 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import kurtis.rx.androidexamples.CitySearchPipeline;
+import kurtis.rx.androidexamples.NetworkScheduler;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+/**
+ * Time from a query entering the Example6 search chain until its results arrive on the result
+ * thread, with the three-hop and the single-hop chain.
+ *
+ * Debounce is set to 0 ms and the search is an in-memory prefix lookup, so what is left is mostly
+ * the time the query spends being handed between threads. A single-threaded executor stands in for
+ * the Android main thread. The pipeline's own dispatch and delivery histograms are printed at the
+ * end of each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchHopBenchmark {
+
+    @Param({"THREE_HOP", "SINGLE_HOP"})
+    CitySearchPipeline.Mode mMode;
+
+    private String[] mQueries;
+    private int mNextQuery;
+
+    private ExecutorService mMainThread;
+    private CitySearchPipeline mPipeline;
+    private PublishSubject<String> mQuerySubject;
+    private Subscription mSubscription;
+    private final BlockingQueue<List<String>> mResults = new LinkedBlockingQueue<>();
+
+    @Setup
+    public void setUp() {
+        String[] cities = CityDataSets.cities(385);
+        final CityPrefixIndex index = new CityPrefixIndex(cities);
+        mQueries = CityDataSets.queries(cities, 1024, 7);
+        mMainThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "main");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        mPipeline = new CitySearchPipeline(mMode,
+                new Func1<String, List<String>>() {
+                    @Override
+                    public List<String> call(String s) {
+                        return index.findByPrefix(s);
+                    }
+                },
+                new Action2<String, Throwable>() {
+                    @Override
+                    public void call(String s, Throwable throwable) {
+                        throw new AssertionError(throwable);
+                    }
+                },
+                0, new NetworkScheduler(4, 64), Schedulers.from(mMainThread));
+        mQuerySubject = PublishSubject.create();
+        mSubscription = mPipeline.results(mQuerySubject).subscribe(new Action1<List<String>>() {
+            @Override
+            public void call(List<String> cities) {
+                mResults.add(cities);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSubscription.unsubscribe();
+        mMainThread.shutdownNow();
+        System.out.println();
+        System.out.println(mPipeline);
+    }
+
+    @Benchmark
+    public List<String> queryToResult() throws InterruptedException {
+        mQuerySubject.onNext(mQueries[mNextQuery++ & (mQueries.length - 1)]);
+        return mResults.take();
+    }
+}
@@ -0,0 +1,447 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kurtis.rx.androidexamples.CancelledException;
+import kurtis.rx.androidexamples.CityPrefixIndex;
+import kurtis.rx.androidexamples.CitySearchPipeline;
+import kurtis.rx.androidexamples.NetworkScheduler;
+import kurtis.rx.androidexamples.RefiningCitySearch;
+import kurtis.rx.androidexamples.SimulatedLatency;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+
+/**
+ * Load test of the Example6 search chain on a plain JVM: thousands of simulated typists, each with
+ * a {@link CitySearchPipeline} of its own, searching through one shared, bounded backend.
+ *
+ * Every typist is a session of a few queries. A query is the first 3 to 10 letters of a city,
+ * typed with log-normal gaps between keys (median 150 ms), the odd pause to think and the odd
+ * typo that is noticed and backspaced; between queries the field is cleared. As in Example6 each
+ * session refines its previous results locally where it can ({@link RefiningCitySearch}) and
+ * only calls the backend otherwise. The backend blocks for a long-tailed delay on a
+ * {@link NetworkScheduler}, which stands in for the servers' capacity: once its threads and queue
+ * are full, searches are rejected. A few threads shared by all sessions stand in for their main
+ * threads.
+ *
+ * Each load step reports backend calls per session, the latency from a query's last keystroke to
+ * its results (which includes the debounce), the latency from any keystroke to the results for
+ * that text, queries that never got their results, and the JVM's peak thread count and heap use.
+ * The capacity is the largest step whose p99 stays within the target with every query answered.
+ * Typing is seeded, so runs differ only by the backend's random delays and scheduling.
+ *
+ * Run with {@code ./gradlew :benchmark:searchLoadTest}, options as {@code -PloadTestArgs="..."}:
+ * <pre>
+ * --typists=500,1000,2000,4000  load steps, concurrent sessions each
+ * --mode=SINGLE_HOP             or THREE_HOP, see CitySearchPipeline
+ * --debounce=400                ms, as in Example6
+ * --backendThreads=64 --backendQueue=256
+ * --backendMedian=50 --backendP99=400  backend delay, ms
+ * --cities=385                  385 is the app's list, other sizes are synthetic
+ * --targetP99=1000              ms from the last keystroke to the results
+ * --seed=1
+ * </pre>
+ */
+public final class SearchLoadTest {
+
+    private static final long KEY_GAP_MEDIAN_MILLIS = 150;
+    private static final long KEY_GAP_P99_MILLIS = 600;
+    private static final double TYPO_RATE = 0.04;
+    private static final double PAUSE_RATE = 0.08;
+    private static final int QUERIES_PER_SESSION = 2;
+    /**
+     * Sessions start spread over this long, so a step ramps up rather than starting in lockstep.
+     */
+    private static final long RAMP_MILLIS = 5000;
+    private static final long GRACE_MILLIS = 15000;
+
+    private final Map<String, String> mOptions;
+    private final CityPrefixIndex mIndex;
+    private final String[] mCities;
+
+    private SearchLoadTest(Map<String, String> options) {
+        mOptions = options;
+        mCities = CityDataSets.cities(intOption("cities", CityDataSets.APP_CITY_COUNT));
+        mIndex = new CityPrefixIndex(mCities);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new ConcurrentHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new SearchLoadTest(options).run();
+        // The Rx and scheduler threads are not daemons.
+        System.exit(0);
+    }
+
+    private void run() throws InterruptedException {
+        String[] steps = stringOption("typists", "500,1000,2000,4000").split(",");
+        long targetP99 = intOption("targetP99", 1000);
+        System.out.println(String.format(Locale.US,
+                "%s, debounce %d ms, backend %d threads + %d queued, delay median %d ms p99 %d ms, %d cities",
+                mode(), intOption("debounce", 400), intOption("backendThreads", 64), intOption("backendQueue", 256),
+                intOption("backendMedian", 50), intOption("backendP99", 400), mCities.length));
+        // One backend for all steps, like the servers it stands in for.
+        NetworkScheduler backend = new NetworkScheduler(intOption("backendThreads", 64), intOption("backendQueue", 256));
+        int capacity = 0;
+        for (String step : steps) {
+            int typists = Integer.parseInt(step.trim());
+            Report report = runStep(typists, backend);
+            System.out.println(report);
+            if (report.mUnanswered == 0 && report.mSettledLatency.percentile(99) <= targetP99) {
+                capacity = Math.max(capacity, typists);
+            }
+        }
+        System.out.println(String.format(Locale.US, "Capacity: %d concurrent typists with p99 <= %d ms", capacity, targetP99));
+    }
+
+    private Report runStep(int typists, NetworkScheduler backend) throws InterruptedException {
+        System.gc();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        HeapSampler heap = new HeapSampler();
+        heap.start();
+
+        long rejectedBefore = backend.getRejectedCount();
+        ExecutorService mainThreads = Executors.newFixedThreadPool(4, daemonThreads("main"));
+        ScheduledExecutorService keyboards = Executors.newScheduledThreadPool(2, daemonThreads("typist"));
+        Scheduler resultScheduler = Schedulers.from(mainThreads);
+        SimulatedLatency latency = SimulatedLatency.longTail(intOption("backendMedian", 50), intOption("backendP99", 400));
+
+        Report report = new Report(typists);
+        List<Session> sessions = new ArrayList<>(typists);
+        long seed = intOption("seed", 1);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < typists; i++) {
+            Session session = new Session(new Random(seed * 1000003 + i), report, backend, resultScheduler, latency);
+            sessions.add(session);
+            session.start(keyboards, startNanos);
+        }
+
+        long typingMillis = 0;
+        for (Session session : sessions) {
+            typingMillis = Math.max(typingMillis, session.mScript.get(session.mScript.size() - 1).mAtMillis);
+        }
+        CountDownLatch settled = report.mSettledSessions;
+        settled.await(typingMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        for (Session session : sessions) {
+            report.mUnanswered += QUERIES_PER_SESSION - session.mAnsweredFinals.get();
+            report.mBackendCalls.add(session.mBackendCalls.get());
+            report.mKeystrokes.add(session.mScript.size());
+            session.stop();
+        }
+        report.mElapsedMillis = elapsedMillis;
+        report.mPeakThreads = threads.getPeakThreadCount();
+        report.mPeakHeapBytes = heap.finish();
+        report.mRejected = backend.getRejectedCount() - rejectedBefore;
+
+        keyboards.shutdownNow();
+        mainThreads.shutdownNow();
+        return report;
+    }
+
+    /**
+     * One typist and their search chain.
+     */
+    private final class Session {
+
+        final List<Keystroke> mScript;
+        final Report mReport;
+        final SerializedSubject<String, String> mInput = PublishSubject.<String>create().toSerialized();
+        final AtomicInteger mBackendCalls = new AtomicInteger();
+        /**
+         * nanoTime of the keystroke that last produced each text.
+         */
+        final Map<String, Long> mTypedAt = new ConcurrentHashMap<>();
+        /**
+         * Last keystroke of each query whose results have not arrived yet, by final text.
+         */
+        final Map<String, Long> mPendingFinals = new ConcurrentHashMap<>();
+        final AtomicInteger mAnsweredFinals = new AtomicInteger();
+        final Subscription mSubscription;
+
+        Session(Random random, Report report, Scheduler backend, Scheduler resultScheduler, final SimulatedLatency latency) {
+            mScript = script(random);
+            mReport = report;
+            RefiningCitySearch search = new RefiningCitySearch(new Func1<String, List<String>>() {
+                @Override
+                public List<String> call(String query) {
+                    mBackendCalls.incrementAndGet();
+                    try {
+                        Thread.sleep(latency.nextDelayMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancelledException("Search cancelled", e);
+                    }
+                    return mIndex.findByPrefix(query);
+                }
+            });
+            CitySearchPipeline pipeline = new CitySearchPipeline(mode(), search,
+                    new Action2<String, Throwable>() {
+                        @Override
+                        public void call(String query, Throwable throwable) {
+                            mReport.mFailedSearches.incrementAndGet();
+                        }
+                    },
+                    intOption("debounce", 400), Schedulers.computation(), backend, resultScheduler);
+            mSubscription = pipeline.searches(mInput).subscribe(new Action1<CitySearchPipeline.Result>() {
+                @Override
+                public void call(CitySearchPipeline.Result result) {
+                    onResult(result.mQuery);
+                }
+            });
+        }
+
+        void start(ScheduledExecutorService keyboard, long startNanos) {
+            for (final Keystroke keystroke : mScript) {
+                long delayNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(keystroke.mAtMillis) - System.nanoTime();
+                keyboard.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        long now = System.nanoTime();
+                        mTypedAt.put(keystroke.mText, now);
+                        if (keystroke.mFinal) {
+                            mPendingFinals.put(keystroke.mText, now);
+                        }
+                        mInput.onNext(keystroke.mText);
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void onResult(String query) {
+            long now = System.nanoTime();
+            Long typedAt = mTypedAt.get(query);
+            if (typedAt != null) {
+                mReport.mResultLatency.add(TimeUnit.NANOSECONDS.toMillis(now - typedAt));
+            }
+            Long finalKeyAt = mPendingFinals.get(query);
+            if (finalKeyAt != null && now >= finalKeyAt && mPendingFinals.remove(query, finalKeyAt)) {
+                mReport.mSettledLatency.add(TimeUnit.NANOSECONDS.toMillis(now - finalKeyAt));
+                // The session is done once the final text of each of its queries was answered.
+                if (mAnsweredFinals.incrementAndGet() == QUERIES_PER_SESSION) {
+                    mReport.mSettledSessions.countDown();
+                }
+            }
+        }
+
+        void stop() {
+            mSubscription.unsubscribe();
+        }
+    }
+
+    /**
+     * The keystrokes of one session, in order, each with the whole text after it.
+     */
+    private List<Keystroke> script(Random random) {
+        double sigma = Math.log((double) KEY_GAP_P99_MILLIS / KEY_GAP_MEDIAN_MILLIS) / 2.3263;
+        List<Keystroke> script = new ArrayList<>();
+        long at = (long) (random.nextDouble() * RAMP_MILLIS);
+        StringBuilder text = new StringBuilder();
+        for (int query = 0; query < QUERIES_PER_SESSION; query++) {
+            if (query > 0) {
+                at += 2000 + random.nextInt(3000);
+                text.setLength(0);
+                script.add(new Keystroke(at, "", false));
+            }
+            String city = mCities[random.nextInt(mCities.length)];
+            int length = Math.min(city.length(), 3 + random.nextInt(8));
+            for (int i = 0; i < length; i++) {
+                at += keyGap(random, sigma);
+                if (random.nextDouble() < TYPO_RATE) {
+                    script.add(new Keystroke(at, text.toString() + (char) ('a' + random.nextInt(26)), false));
+                    at += 200 + random.nextInt(300);
+                    script.add(new Keystroke(at, text.toString(), false));
+                    at += keyGap(random, sigma);
+                }
+                text.append(city.charAt(i));
+                script.add(new Keystroke(at, text.toString(), i == length - 1));
+                if (random.nextDouble() < PAUSE_RATE) {
+                    at += 300 + random.nextInt(1200);
+                }
+            }
+        }
+        return script;
+    }
+
+    private static long keyGap(Random random, double sigma) {
+        return Math.max(30, Math.round(KEY_GAP_MEDIAN_MILLIS * Math.exp(sigma * random.nextGaussian())));
+    }
+
+    private CitySearchPipeline.Mode mode() {
+        return CitySearchPipeline.Mode.valueOf(stringOption("mode", CitySearchPipeline.Mode.SINGLE_HOP.name()));
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = mOptions.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private String stringOption(String name, String defaultValue) {
+        String value = mOptions.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static final class Keystroke {
+
+        final long mAtMillis;
+        final String mText;
+        /**
+         * The last keystroke of a query, after which the typist waits for the results.
+         */
+        final boolean mFinal;
+
+        Keystroke(long atMillis, String text, boolean isFinal) {
+            mAtMillis = atMillis;
+            mText = text;
+            mFinal = isFinal;
+        }
+    }
+
+    private static final class Report {
+
+        final int mTypists;
+        final CountDownLatch mSettledSessions;
+        final Samples mSettledLatency = new Samples();
+        final Samples mResultLatency = new Samples();
+        final Samples mBackendCalls = new Samples();
+        final Samples mKeystrokes = new Samples();
+        final AtomicInteger mFailedSearches = new AtomicInteger();
+        int mUnanswered;
+        long mRejected;
+        long mElapsedMillis;
+        int mPeakThreads;
+        long mPeakHeapBytes;
+
+        Report(int typists) {
+            mTypists = typists;
+            mSettledSessions = new CountDownLatch(typists);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%5d typists in %5.1f s: backend calls/session mean %.1f p95 %d (of %.1f keystrokes),"
+                            + " last key to results p50 %d p95 %d p99 %d ms,"
+                            + " any key to results p50 %d p95 %d p99 %d ms,"
+                            + " unanswered %d, failed searches %d (%d rejected),"
+                            + " peak threads %d, peak heap %d MB",
+                    mTypists, mElapsedMillis / 1000.0,
+                    mBackendCalls.mean(), mBackendCalls.percentile(95), mKeystrokes.mean(),
+                    mSettledLatency.percentile(50), mSettledLatency.percentile(95), mSettledLatency.percentile(99),
+                    mResultLatency.percentile(50), mResultLatency.percentile(95), mResultLatency.percentile(99),
+                    mUnanswered, mFailedSearches.get(), mRejected,
+                    mPeakThreads, mPeakHeapBytes / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Every value kept, for exact percentiles.
+     */
+    private static final class Samples {
+
+        private long[] mValues = new long[1024];
+        private int mCount;
+
+        synchronized void add(long value) {
+            if (mCount == mValues.length) {
+                mValues = Arrays.copyOf(mValues, 2 * mCount);
+            }
+            mValues[mCount++] = value;
+        }
+
+        synchronized long percentile(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(mValues, mCount);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(mCount * percentile / 100) - 1)];
+        }
+
+        synchronized double mean() {
+            long total = 0;
+            for (int i = 0; i < mCount; i++) {
+                total += mValues[i];
+            }
+            return mCount == 0 ? 0 : (double) total / mCount;
+        }
+    }
+
+    /**
+     * Samples the used heap every 50 ms, since the peak is not kept by the JVM.
+     */
+    private static final class HeapSampler extends Thread {
+
+        private final MemoryMXBean mMemory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong mPeakBytes = new AtomicLong();
+        private volatile boolean mStopped;
+
+        HeapSampler() {
+            super("heap-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!mStopped) {
+                long used = mMemory.getHeapMemoryUsage().getUsed();
+                if (used > mPeakBytes.get()) {
+                    mPeakBytes.set(used);
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            mStopped = true;
+            join();
+            return mPeakBytes.get();
+        }
+    }
+}
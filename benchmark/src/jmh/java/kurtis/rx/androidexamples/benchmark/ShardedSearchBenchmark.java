@@ -0,0 +1,50 @@
+package kurtis.rx.androidexamples.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kurtis.rx.androidexamples.ShardedCityIndex;
+import rx.schedulers.Schedulers;
+
+/**
+ * Prefix search over large synthetic lists with {@link ShardedCityIndex}, from 1 shard up to one
+ * per core, on the computation scheduler. The queries are 1 to 4 characters, so the short ones
+ * match a good part of the list. Compare with the single-threaded prefixIndex of
+ * {@link CitySearchBenchmark}; shard counts above the machine's core count only add hops.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardedSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    int mSize;
+
+    @Param({"1", "2", "4", "8"})
+    int mShards;
+
+    private ShardedCityIndex mIndex;
+    private String[] mQueries;
+    private int mNextQuery;
+
+    @Setup
+    public void setUp() {
+        String[] cities = CityDataSets.cities(mSize);
+        mIndex = new ShardedCityIndex(cities, mShards, Schedulers.computation());
+        mQueries = CityDataSets.queries(cities, 1024, 7);
+    }
+
+    @Benchmark
+    public List<String> sharded() {
+        return mIndex.findByPrefix(mQueries[mNextQuery++ & (mQueries.length - 1)]);
+    }
+}
@@ -0,0 +1,113 @@
+package kurtis.rx.androidexamples.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import kurtis.rx.androidexamples.MappedCityIndex;
+
+/**
+ * Compiles a string-array resource into a {@link MappedCityIndex} file.
+ */
+public class CompileCityIndexTask extends DefaultTask {
+
+    private File mCityList;
+    private String mArrayName = "city_list";
+    private File mOutputFile;
+
+    @InputFile
+    public File getCityList() {
+        return mCityList;
+    }
+
+    public void setCityList(File cityList) {
+        mCityList = cityList;
+    }
+
+    @Input
+    public String getArrayName() {
+        return mArrayName;
+    }
+
+    public void setArrayName(String arrayName) {
+        mArrayName = arrayName;
+    }
+
+    @OutputFile
+    public File getOutputFile() {
+        return mOutputFile;
+    }
+
+    public void setOutputFile(File outputFile) {
+        mOutputFile = outputFile;
+    }
+
+    @TaskAction
+    public void compile() throws IOException {
+        List<String> cities = readStringArray();
+        mOutputFile.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(mOutputFile);
+        try {
+            MappedCityIndex.write(cities.toArray(new String[cities.size()]), out);
+        } finally {
+            out.close();
+        }
+        getLogger().info("Compiled {} cities into {}", cities.size(), mOutputFile);
+    }
+
+    private List<String> readStringArray() {
+        NodeList arrays;
+        try {
+            arrays = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(mCityList)
+                    .getElementsByTagName("string-array");
+        } catch (Exception e) {
+            throw new GradleException("Could not parse " + mCityList, e);
+        }
+        for (int i = 0; i < arrays.getLength(); i++) {
+            Element array = (Element) arrays.item(i);
+            if (mArrayName.equals(array.getAttribute("name"))) {
+                NodeList items = array.getElementsByTagName("item");
+                List<String> strings = new ArrayList<>(items.getLength());
+                for (int j = 0; j < items.getLength(); j++) {
+                    strings.add(unescape(items.item(j).getTextContent().trim()));
+                }
+                return strings;
+            }
+        }
+        throw new GradleException("No string-array named " + mArrayName + " in " + mCityList);
+    }
+
+    /**
+     * Undoes the quoting and backslash escapes of Android string resources.
+     */
+    private static String unescape(String resource) {
+        if (resource.length() >= 2 && resource.startsWith("\"") && resource.endsWith("\"")) {
+            resource = resource.substring(1, resource.length() - 1);
+        }
+        StringBuilder string = new StringBuilder(resource.length());
+        for (int i = 0; i < resource.length(); i++) {
+            char c = resource.charAt(i);
+            if (c == '\\' && i + 1 < resource.length()) {
+                char escaped = resource.charAt(++i);
+                string.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+            } else {
+                string.append(c);
+            }
+        }
+        return string.toString();
+    }
+}